@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * <i>Cache</i> de registros decodificados, limitado pelo peso total
+ * (estimativa de bytes) das entradas, a ser empregado diante de
+ * leituras repetidas dos mesmos registros, por exemplo, de um arquivo
+ * mapeado em memória.
+ *
+ * <p>A chave de uma entrada é um {@code long}, em geral a posição do
+ * registro no arquivo ou uma chave obtida de {@link IndiceHash}. O
+ * valor é definido por quem faz uso da classe, tipicamente
+ * {@link RegistroDecodificado}, cujo peso é fornecido por
+ * {@link RegistroDecodificado#peso()}:
+ *
+ * <pre>
+ * CacheRegistros&lt;RegistroDecodificado&gt; cache =
+ *     new CacheRegistros&lt;&gt;(64 &lt;&lt; 20, RegistroDecodificado::peso);
+ * RegistroDecodificado r = cache.obtem(posicao, p -&gt;
+ *     RegistroDecodificado.de(Seed.desserializa(mapeado, (int) p)));
+ * </pre>
+ *
+ * <p>A política de remoção é LRU segmentada: uma entrada nova é
+ * inserida no segmento probatório e, ao ser novamente requisitada, é
+ * promovida ao segmento protegido (no máximo 80% do peso). A remoção
+ * ocorre primeiro no segmento probatório, o que impede que uma
+ * varredura, na qual cada registro é requisitado uma única vez,
+ * descarte os registros frequentemente requisitados.
+ *
+ * <p>Acessos concorrentes são admitidos. As entradas são distribuídas
+ * em partições, cada uma com sua própria trava e fração do peso
+ * máximo. A carga de um valor ausente ocorre fora da trava, ou seja,
+ * requisições simultâneas pela mesma chave ausente podem produzir
+ * mais de uma carga, das quais a primeira a ser concluída é mantida.
+ */
+public class CacheRegistros<V> {
+
+    /**
+     * Percentual do peso de uma partição reservado ao
+     * segmento protegido.
+     */
+    private static final int PROTEGIDO = 80;
+
+    private final Particao<V>[] particoes;
+    private final int mascara;
+    private final ToIntFunction<? super V> pesador;
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+
+    /**
+     * Cria <i>cache</i> com uma partição para cada processador
+     * disponível (arredondado para potência de dois).
+     *
+     * @param pesoMaximo Peso total máximo das entradas.
+     * @param pesador Função que estabelece o peso de um valor.
+     */
+    public CacheRegistros(long pesoMaximo, ToIntFunction<? super V> pesador) {
+        this(pesoMaximo, pesador, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Cria <i>cache</i> com a quantidade de partições indicada
+     * (arredondada para potência de dois).
+     *
+     * @param pesoMaximo Peso total máximo das entradas.
+     * @param pesador Função que estabelece o peso de um valor.
+     * @param particoes Quantidade de partições.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public CacheRegistros(long pesoMaximo, ToIntFunction<? super V> pesador,
+                          int particoes) {
+        if (pesoMaximo <= 0 || particoes <= 0) {
+            throw new IllegalArgumentException("peso e partições devem ser positivos");
+        }
+
+        int quantidade = Integer.highestOneBit(Math.min(particoes, 1 << 16));
+        if (quantidade < particoes) {
+            quantidade = quantidade << 1;
+        }
+
+        this.pesador = pesador;
+        this.mascara = quantidade - 1;
+        this.particoes = new Particao[quantidade];
+        long fracao = Math.max(1, pesoMaximo / quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            this.particoes[i] = new Particao<>(fracao);
+        }
+    }
+
+    /**
+     * Recupera o valor associado à chave, produzindo-o por meio do
+     * carregador, caso não esteja presente.
+     *
+     * @param chave Chave do valor, por exemplo, posição do registro.
+     * @param carregador Função que produz o valor a partir da chave.
+     * @return Valor associado à chave.
+     */
+    public V obtem(long chave, LongFunction<? extends V> carregador) {
+        V valor = busca(chave);
+        if (valor != null) {
+            return valor;
+        }
+
+        V carregado = carregador.apply(chave);
+        if (carregado == null) {
+            return null;
+        }
+
+        return insere(chave, carregado, false);
+    }
+
+    /**
+     * Recupera o valor associado à chave, sem carregá-lo.
+     *
+     * @param chave Chave do valor.
+     * @return Valor associado à chave ou {@code null}, caso não
+     * esteja presente.
+     */
+    public V busca(long chave) {
+        Particao<V> p = particao(chave);
+        p.trava.lock();
+        try {
+            V valor = p.busca(chave);
+            if (valor == null) {
+                faltas.increment();
+            } else {
+                acertos.increment();
+            }
+
+            return valor;
+        } finally {
+            p.trava.unlock();
+        }
+    }
+
+    /**
+     * Associa o valor à chave, substituindo valor anterior, caso
+     * exista.
+     *
+     * @param chave Chave do valor.
+     * @param valor Valor a ser associado à chave.
+     */
+    public void insere(long chave, V valor) {
+        insere(chave, valor, true);
+    }
+
+    /**
+     * Remove o valor associado à chave, caso exista, por exemplo,
+     * após a alteração do registro correspondente.
+     *
+     * @param chave Chave do valor a ser removido.
+     */
+    public void invalida(long chave) {
+        Particao<V> p = particao(chave);
+        p.trava.lock();
+        try {
+            p.remove(chave);
+        } finally {
+            p.trava.unlock();
+        }
+    }
+
+    /**
+     * Remove todas as entradas. Os contadores são preservados.
+     */
+    public void limpa() {
+        for (Particao<V> p : particoes) {
+            p.trava.lock();
+            try {
+                p.limpa();
+            } finally {
+                p.trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * Quantidade de entradas.
+     *
+     * @return Quantidade de entradas presentes.
+     */
+    public int quantidade() {
+        int total = 0;
+        for (Particao<V> p : particoes) {
+            p.trava.lock();
+            try {
+                total = total + p.probatorio.size() + p.protegido.size();
+            } finally {
+                p.trava.unlock();
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Peso total das entradas.
+     *
+     * @return Soma dos pesos das entradas presentes.
+     */
+    public long peso() {
+        long total = 0;
+        for (Particao<V> p : particoes) {
+            p.trava.lock();
+            try {
+                total = total + p.pesoProbatorio + p.pesoProtegido;
+            } finally {
+                p.trava.unlock();
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Quantidade de requisições atendidas pelo <i>cache</i>.
+     *
+     * @return Total de acertos.
+     */
+    public long acertos() {
+        return acertos.sum();
+    }
+
+    /**
+     * Quantidade de requisições por chaves ausentes.
+     *
+     * @return Total de faltas.
+     */
+    public long faltas() {
+        return faltas.sum();
+    }
+
+    /**
+     * Quantidade de entradas removidas para respeitar o peso máximo.
+     *
+     * @return Total de remoções.
+     */
+    public long remocoes() {
+        return remocoes.sum();
+    }
+
+    /**
+     * Fração das requisições atendidas pelo <i>cache</i>.
+     *
+     * @return Taxa de acerto, entre 0 e 1, ou 0 se nenhuma
+     * requisição foi feita.
+     */
+    public double taxaAcerto() {
+        long a = acertos.sum();
+        long total = a + faltas.sum();
+        return total == 0 ? 0 : (double) a / total;
+    }
+
+    /**
+     * Zera os contadores de acertos, faltas e remoções.
+     */
+    public void reiniciaContadores() {
+        acertos.reset();
+        faltas.reset();
+        remocoes.reset();
+    }
+
+    private V insere(long chave, V valor, boolean substitui) {
+        int peso = pesador.applyAsInt(valor);
+        Particao<V> p = particao(chave);
+        p.trava.lock();
+        try {
+            if (!substitui) {
+                Entrada<V> existente = p.probatorio.get(chave);
+                if (existente == null) {
+                    existente = p.protegido.get(chave);
+                }
+
+                if (existente != null) {
+                    return existente.valor;
+                }
+            } else {
+                p.remove(chave);
+            }
+
+            // Entrada maior que a partição não é mantida
+            if (peso <= p.maximo) {
+                p.probatorio.put(chave, new Entrada<>(valor, peso));
+                p.pesoProbatorio = p.pesoProbatorio + peso;
+                remocoes.add(p.reduz());
+            }
+
+            return valor;
+        } finally {
+            p.trava.unlock();
+        }
+    }
+
+    private Particao<V> particao(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return particoes[(int) (h >>> 40) & mascara];
+    }
+
+    /**
+     * Valor e respectivo peso.
+     */
+    private static final class Entrada<V> {
+        final V valor;
+        final int peso;
+
+        Entrada(V valor, int peso) {
+            this.valor = valor;
+            this.peso = peso;
+        }
+    }
+
+    /**
+     * Partição do <i>cache</i>, com os segmentos probatório e
+     * protegido. Os mapas são mantidos em ordem de acesso, ou seja,
+     * a primeira entrada de cada um deles é a menos recentemente
+     * requisitada. Todos os métodos exigem a posse da trava.
+     */
+    private static final class Particao<V> {
+        final ReentrantLock trava = new ReentrantLock();
+        final LinkedHashMap<Long, Entrada<V>> probatorio =
+                new LinkedHashMap<>(16, 0.75f, true);
+        final LinkedHashMap<Long, Entrada<V>> protegido =
+                new LinkedHashMap<>(16, 0.75f, true);
+
+        final long maximo;
+        final long maximoProtegido;
+        long pesoProbatorio;
+        long pesoProtegido;
+
+        Particao(long maximo) {
+            this.maximo = maximo;
+            this.maximoProtegido = maximo * PROTEGIDO / 100;
+        }
+
+        V busca(long chave) {
+            Entrada<V> e = protegido.get(chave);
+            if (e != null) {
+                return e.valor;
+            }
+
+            e = probatorio.remove(chave);
+            if (e == null) {
+                return null;
+            }
+
+            // Segunda requisição: promoção ao segmento protegido
+            pesoProbatorio = pesoProbatorio - e.peso;
+            protegido.put(chave, e);
+            pesoProtegido = pesoProtegido + e.peso;
+
+            // Excesso no segmento protegido retorna ao probatório
+            while (pesoProtegido > maximoProtegido) {
+                Iterator<Map.Entry<Long, Entrada<V>>> it =
+                        protegido.entrySet().iterator();
+                Map.Entry<Long, Entrada<V>> antiga = it.next();
+                it.remove();
+                pesoProtegido = pesoProtegido - antiga.getValue().peso;
+                probatorio.put(antiga.getKey(), antiga.getValue());
+                pesoProbatorio = pesoProbatorio + antiga.getValue().peso;
+            }
+
+            return e.valor;
+        }
+
+        void remove(long chave) {
+            Entrada<V> e = probatorio.remove(chave);
+            if (e != null) {
+                pesoProbatorio = pesoProbatorio - e.peso;
+                return;
+            }
+
+            e = protegido.remove(chave);
+            if (e != null) {
+                pesoProtegido = pesoProtegido - e.peso;
+            }
+        }
+
+        /**
+         * Remove as entradas menos recentemente requisitadas, primeiro
+         * do segmento probatório, até que o peso máximo seja respeitado.
+         *
+         * @return Quantidade de entradas removidas.
+         */
+        int reduz() {
+            int removidas = 0;
+            while (pesoProbatorio + pesoProtegido > maximo) {
+                boolean probatoria = !probatorio.isEmpty();
+                Iterator<Entrada<V>> it = probatoria
+                        ? probatorio.values().iterator()
+                        : protegido.values().iterator();
+                Entrada<V> e = it.next();
+                it.remove();
+                if (probatoria) {
+                    pesoProbatorio = pesoProbatorio - e.peso;
+                } else {
+                    pesoProtegido = pesoProtegido - e.peso;
+                }
+
+                removidas++;
+            }
+
+            return removidas;
+        }
+
+        void limpa() {
+            probatorio.clear();
+            protegido.clear();
+            pesoProbatorio = 0;
+            pesoProtegido = 0;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.util.List;
+
+/**
+ * Transferência de lotes de registros por canais (arquivos,
+ * <i>sockets</i>), sem cópias intermediárias.
+ *
+ * <p>Na escrita, os bytes de cada registro são obtidos diretamente
+ * do buffer do registro (veja {@link Seed#bytes()}) e todos eles são
+ * escritos de uma só vez via {@link GatheringByteChannel}. Na
+ * leitura, a área exata para os registros é alocada de uma só vez e
+ * dividida em buffers, um por registro, preenchidos via
+ * {@link ScatteringByteChannel}.
+ *
+ * <p>Cada lote transferido é formado pela quantidade de registros
+ * ({@code int}), pelo tamanho de cada registro ({@code int}) e, na
+ * sequência, pelos registros. Os registros de um lote, assim como
+ * os tamanhos, ocupam no máximo {@value #MAXIMO} bytes.
+ */
+public final class CanalRegistros {
+
+    /**
+     * Quantidade máxima de bytes dos registros de um lote, limitada
+     * pelo maior vetor admitido pela JVM.
+     */
+    public static final int MAXIMO = Integer.MAX_VALUE - 8;
+
+    /**
+     * Evita criação de instância.
+     */
+    private CanalRegistros() {
+    }
+
+    /**
+     * Escreve os registros no canal.
+     *
+     * @param canal Canal no qual os registros são escritos.
+     * @param registros Registros a serem escritos.
+     * @return Quantidade de bytes escritos.
+     *
+     * @throws IOException Em caso de falha de escrita.
+     */
+    public static long escreve(GatheringByteChannel canal, List<Seed> registros)
+            throws IOException {
+        int quantidade = registros.size();
+        ByteBuffer[] buffers = new ByteBuffer[quantidade + 1];
+        ByteBuffer cabecalho = ByteBuffer.allocate(4 + 4 * quantidade);
+        cabecalho.putInt(quantidade);
+
+        for (int i = 0; i < quantidade; i++) {
+            ByteBuffer registro = registros.get(i).bytes();
+            cabecalho.putInt(registro.remaining());
+            buffers[i + 1] = registro;
+        }
+
+        cabecalho.flip();
+        buffers[0] = cabecalho;
+
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total = total + buffer.remaining();
+        }
+
+        long escritos = 0;
+        while (escritos < total) {
+            escritos = escritos + canal.write(buffers);
+        }
+
+        return escritos;
+    }
+
+    /**
+     * Lê do canal um lote de registros escrito por
+     * {@link #escreve(GatheringByteChannel, List)}.
+     *
+     * @param canal Canal do qual os registros são lidos.
+     * @return Registros lidos ou {@code null}, caso o canal tenha
+     * sido encerrado antes do início de um lote.
+     *
+     * @throws IOException Em caso de falha de leitura, canal
+     * encerrado no meio de um lote ou cabeçalho inválido.
+     */
+    public static Seed[] le(ScatteringByteChannel canal) throws IOException {
+        ByteBuffer quantidade = ByteBuffer.allocate(4);
+        if (!preenche(canal, new ByteBuffer[] { quantidade }, true)) {
+            return null;
+        }
+
+        int registros = quantidade.getInt(0);
+        if (registros < 0 || registros > MAXIMO / 4) {
+            throw new IOException("quantidade de registros inválida: " + registros);
+        }
+
+        ByteBuffer tamanhos = ByteBuffer.allocate(4 * registros);
+        preenche(canal, new ByteBuffer[] { tamanhos }, false);
+
+        long total = 0;
+        for (int i = 0; i < registros; i++) {
+            int tamanho = tamanhos.getInt(4 * i);
+
+            // Menor registro: sem campos (dois bytes)
+            if (tamanho < 2) {
+                throw new IOException("tamanho de registro inválido: " + tamanho);
+            }
+
+            total = total + tamanho;
+        }
+
+        if (total > MAXIMO) {
+            throw new IOException("lote excede " + MAXIMO + " bytes: " + total);
+        }
+
+        // Única área para todos os registros do lote
+        byte[] area = new byte[(int) total];
+        ByteBuffer[] buffers = new ByteBuffer[registros];
+        int inicio = 0;
+        for (int i = 0; i < registros; i++) {
+            int tamanho = tamanhos.getInt(4 * i);
+            buffers[i] = ByteBuffer.wrap(area, inicio, tamanho).slice();
+            inicio = inicio + tamanho;
+        }
+
+        preenche(canal, buffers, false);
+
+        Seed[] lidos = new Seed[registros];
+        for (int i = 0; i < registros; i++) {
+            buffers[i].clear();
+            lidos[i] = Seed.desserializa(buffers[i], 0);
+        }
+
+        return lidos;
+    }
+
+    /**
+     * Preenche os buffers a partir do canal.
+     *
+     * @return {@code false} se o canal foi encerrado antes da leitura
+     * do primeiro byte e o encerramento é admitido.
+     */
+    private static boolean preenche(ScatteringByteChannel canal,
+                                    ByteBuffer[] buffers,
+                                    boolean admiteFim) throws IOException {
+        ByteBuffer ultimo = buffers.length == 0 ? null : buffers[buffers.length - 1];
+        boolean inicio = true;
+        while (ultimo != null && ultimo.hasRemaining()) {
+            long lidos = canal.read(buffers);
+            if (lidos < 0) {
+                if (inicio && admiteFim) {
+                    return false;
+                }
+
+                throw new EOFException("lote incompleto");
+            }
+
+            inicio = inicio && lidos == 0;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codificação compacta de uma coluna de valores inteiros, ou seja,
+ * dos valores de um mesmo campo numérico de vários registros.
+ *
+ * <p>Duas codificações são avaliadas e a de menor tamanho é
+ * empregada. Na primeira (<i>frame of reference</i>) cada valor é
+ * armazenado como a diferença para o menor valor da coluna (base).
+ * Na segunda (delta), cada valor é armazenado como a diferença para
+ * o valor anterior, da qual é subtraída a menor diferença da coluna
+ * (referência). Em ambas as diferenças são depositadas com a menor
+ * quantidade de bits suficiente para a maior delas. Para valores
+ * próximos, por exemplo, instantes de tempo consecutivos, poucos
+ * bits por valor são empregados.
+ *
+ * <p>A codificação é formada pelo modo ({@code byte}), pela
+ * quantidade de bits por valor ({@code byte}), pela quantidade de
+ * valores ({@code int}), pela base ({@code long}), pela referência
+ * ({@code long}) e pelas palavras ({@code long}) que contêm os bits
+ * de todos os valores.
+ */
+public final class ColunaNumerica {
+
+    private static final byte REFERENCIA = 0;
+    private static final byte DELTA = 1;
+
+    /**
+     * Tamanho do cabeçalho da coluna codificada.
+     */
+    private static final int CABECALHO = 1 + 1 + 4 + 8 + 8;
+
+    /**
+     * Evita criação de instância.
+     */
+    private ColunaNumerica() {
+    }
+
+    /**
+     * Produz a codificação dos valores.
+     *
+     * @param valores Vetor que contém os valores a serem codificados.
+     * @param quantidade Quantidade de valores, a partir do primeiro.
+     * @return Vetor de bytes que contém os valores codificados.
+     *
+     * @see #decodifica(ByteBuffer, int, long[])
+     */
+    public static byte[] codifica(long[] valores, int quantidade) {
+        long minimo = 0;
+        long maximo = 0;
+        long menorDelta = 0;
+        long maiorDelta = 0;
+        if (quantidade > 0) {
+            minimo = valores[0];
+            maximo = valores[0];
+        }
+
+        if (quantidade > 1) {
+            menorDelta = valores[1] - valores[0];
+            maiorDelta = menorDelta;
+        }
+
+        for (int i = 1; i < quantidade; i++) {
+            long v = valores[i];
+            long d = v - valores[i - 1];
+            minimo = Math.min(minimo, v);
+            maximo = Math.max(maximo, v);
+            menorDelta = Math.min(menorDelta, d);
+            maiorDelta = Math.max(maiorDelta, d);
+        }
+
+        int bitsReferencia = bits(maximo - minimo);
+        int bitsDelta = bits(maiorDelta - menorDelta);
+
+        // Uma diferença a menos no modo delta (o primeiro valor é a base)
+        boolean delta = (long) bitsDelta * (quantidade - 1)
+                < (long) bitsReferencia * quantidade;
+
+        int largura = delta ? bitsDelta : bitsReferencia;
+        int palavras = (int) (((long) largura * quantidade + 63) >>> 6);
+
+        ByteBuffer coluna = ByteBuffer.allocate(CABECALHO + 8 * palavras);
+        coluna.put(delta ? DELTA : REFERENCIA);
+        coluna.put((byte) largura);
+        coluna.putInt(quantidade);
+        coluna.putLong(delta ? (quantidade > 0 ? valores[0] : 0) : minimo);
+        coluna.putLong(delta ? menorDelta : 0);
+
+        long[] bits = new long[palavras];
+        if (delta) {
+            for (int i = 1; i < quantidade; i++) {
+                empacota(bits, i - 1, largura, valores[i] - valores[i - 1] - menorDelta);
+            }
+        } else {
+            for (int i = 0; i < quantidade; i++) {
+                empacota(bits, i, largura, valores[i] - minimo);
+            }
+        }
+
+        for (long palavra : bits) {
+            coluna.putLong(palavra);
+        }
+
+        return coluna.array();
+    }
+
+    /**
+     * Quantidade de valores da coluna codificada.
+     *
+     * @param coluna Buffer que contém a coluna codificada.
+     * @param inicio Posição inicial da coluna no buffer.
+     * @return Quantidade de valores da coluna.
+     */
+    public static int quantidade(ByteBuffer coluna, int inicio) {
+        return coluna.getInt(inicio + 2);
+    }
+
+    /**
+     * Quantidade de bytes ocupada pela coluna codificada.
+     *
+     * @param coluna Buffer que contém a coluna codificada.
+     * @param inicio Posição inicial da coluna no buffer.
+     * @return Quantidade de bytes ocupada pela coluna.
+     */
+    public static int tamanho(ByteBuffer coluna, int inicio) {
+        long bits = (long) (coluna.get(inicio + 1) & 0xFF) * quantidade(coluna, inicio);
+        return CABECALHO + 8 * (int) ((bits + 63) >>> 6);
+    }
+
+    /**
+     * Recupera os valores da coluna codificada.
+     *
+     * @param coluna Buffer que contém a coluna codificada.
+     * @param inicio Posição inicial da coluna no buffer.
+     * @param destino Vetor que recebe os valores, com capacidade
+     *                para pelo menos {@link #quantidade(ByteBuffer, int)}
+     *                valores.
+     * @return Quantidade de valores recuperados.
+     */
+    public static int decodifica(ByteBuffer coluna, int inicio, long[] destino) {
+        boolean delta = coluna.get(inicio) == DELTA;
+        int largura = coluna.get(inicio + 1) & 0xFF;
+        int quantidade = coluna.getInt(inicio + 2);
+        long base = coluna.getLong(inicio + 6);
+        long referencia = coluna.getLong(inicio + 14);
+
+        int palavras = (int) (((long) largura * quantidade + 63) >>> 6);
+        long[] bits = new long[palavras + 1];
+        for (int i = 0; i < palavras; i++) {
+            bits[i] = coluna.getLong(inicio + CABECALHO + 8 * i);
+        }
+
+        if (quantidade == 0) {
+            return 0;
+        }
+
+        if (delta) {
+            desempacota(bits, largura, destino, 1, quantidade - 1);
+            destino[0] = base;
+            for (int i = 1; i < quantidade; i++) {
+                destino[i] = destino[i - 1] + destino[i] + referencia;
+            }
+        } else {
+            desempacota(bits, largura, destino, 0, quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                destino[i] = destino[i] + base;
+            }
+        }
+
+        return quantidade;
+    }
+
+    /**
+     * Quantidade de bits necessária para o valor, interpretado
+     * como inteiro sem sinal.
+     */
+    private static int bits(long valor) {
+        return 64 - Long.numberOfLeadingZeros(valor);
+    }
+
+    /**
+     * Deposita os bits menos significativos do valor na posição
+     * (índice) indicada.
+     */
+    private static void empacota(long[] bits, int indice, int largura, long valor) {
+        if (largura == 0) {
+            return;
+        }
+
+        long posicao = (long) indice * largura;
+        int palavra = (int) (posicao >>> 6);
+        int deslocamento = (int) (posicao & 63);
+
+        bits[palavra] |= valor << deslocamento;
+        if (deslocamento + largura > 64) {
+            bits[palavra + 1] |= valor >>> (64 - deslocamento);
+        }
+    }
+
+    /**
+     * Recupera os valores empacotados, sem sinal, a partir do
+     * primeiro, depositando-os no destino a partir da posição
+     * indicada. O vetor de bits possui uma palavra adicional (zero),
+     * o que elimina o teste de limite no laço.
+     */
+    private static void desempacota(long[] bits, int largura, long[] destino,
+                                    int de, int quantidade) {
+        if (largura == 0) {
+            for (int i = 0; i < quantidade; i++) {
+                destino[de + i] = 0;
+            }
+
+            return;
+        }
+
+        long mascara = largura == 64 ? -1L : (1L << largura) - 1;
+        for (int i = 0; i < quantidade; i++) {
+            long posicao = (long) i * largura;
+            int palavra = (int) (posicao >>> 6);
+            int deslocamento = (int) (posicao & 63);
+
+            // Deslocamento de 64 bits em Java equivale a zero bits,
+            // daí o deslocamento em duas etapas.
+            long alto = (bits[palavra + 1] << 1) << (63 - deslocamento);
+            destino[de + i] = ((bits[palavra] >>> deslocamento) | alto) & mascara;
+        }
+    }
+}
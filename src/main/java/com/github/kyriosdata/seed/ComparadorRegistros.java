@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * Ordena registros serializados (conforme {@link Seed}) por um ou
+ * mais campos (chave), diretamente sobre os bytes.
+ *
+ * <p>Nenhum registro é desserializado. Campos numéricos são
+ * comparados pelos valores armazenados; {@link Seed#STRING} e
+ * {@link Seed#VETOR} são comparados lexicograficamente, byte a byte
+ * (sem sinal), o que para sequências de caracteres em UTF-8
+ * equivale à ordem dos <i>code points</i>, sem a necessidade de
+ * decodificá-las.
+ *
+ * <p>Os campos da chave são comparados na ordem em que são
+ * fornecidos. Ambos os registros comparados devem possuir a mesma
+ * metainformação, ao menos para os campos da chave. Um campo
+ * ausente (formato esparso) precede qualquer valor.
+ */
+public class ComparadorRegistros implements Comparator<byte[]> {
+
+    /**
+     * Ordens dos campos que formam a chave.
+     */
+    private final int[] ordens;
+
+    /**
+     * Cria comparador para a chave formada pelos campos indicados.
+     *
+     * @param ordens Ordens dos campos que formam a chave, do mais
+     *               significativo para o menos significativo.
+     */
+    public ComparadorRegistros(int... ordens) {
+        if (ordens.length == 0) {
+            throw new IllegalArgumentException("chave sem campos");
+        }
+
+        this.ordens = ordens.clone();
+    }
+
+    /**
+     * Compara dois registros, cada um deles iniciado na primeira
+     * posição do vetor correspondente.
+     *
+     * @param a Primeiro registro.
+     * @param b Segundo registro.
+     * @return Valor negativo, zero ou positivo, conforme o primeiro
+     * registro seja menor, igual ou maior que o segundo.
+     */
+    @Override
+    public int compare(byte[] a, byte[] b) {
+        // Diretamente sobre os vetores, sem criar buffers a cada comparação
+        for (int ordem : ordens) {
+            boolean presenteA = Seed.presente(a, 0, ordem);
+            boolean presenteB = Seed.presente(b, 0, ordem);
+            if (!presenteA || !presenteB) {
+                if (presenteA != presenteB) {
+                    return presenteA ? 1 : -1;
+                }
+
+                continue;
+            }
+
+            int pa = Seed.offset(a, 0, ordem);
+            int pb = Seed.offset(b, 0, ordem);
+
+            int r = comparaCampo(Seed.tipo(a, 0, ordem), a, pa, b, pb);
+            if (r != 0) {
+                return r;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Compara dois registros localizados em buffers arbitrários,
+     * por exemplo, em um mesmo arquivo mapeado em memória.
+     *
+     * @param a Buffer que contém o primeiro registro.
+     * @param inicioA Posição inicial do primeiro registro.
+     * @param b Buffer que contém o segundo registro.
+     * @param inicioB Posição inicial do segundo registro.
+     * @return Valor negativo, zero ou positivo, conforme o primeiro
+     * registro seja menor, igual ou maior que o segundo.
+     */
+    public int compara(ByteBuffer a, int inicioA, ByteBuffer b, int inicioB) {
+        for (int ordem : ordens) {
+            // Campo ausente precede qualquer valor
+            boolean presenteA = Seed.presente(a, inicioA, ordem);
+            boolean presenteB = Seed.presente(b, inicioB, ordem);
+            if (!presenteA || !presenteB) {
+                if (presenteA != presenteB) {
+                    return presenteA ? 1 : -1;
+                }
+
+                continue;
+            }
+
+            int pa = Seed.offset(a, inicioA, ordem);
+            int pb = Seed.offset(b, inicioB, ordem);
+
+            int r = comparaCampo(Seed.tipo(a, inicioA, ordem), a, pa, b, pb);
+            if (r != 0) {
+                return r;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Compara os valores de um campo armazenados nas posições
+     * indicadas.
+     */
+    private static int comparaCampo(byte tipo, ByteBuffer a, int pa,
+                                    ByteBuffer b, int pb) {
+        switch (tipo) {
+            case Seed.BYTE:
+            case Seed.BOOLEAN:
+                return Byte.compare(a.get(pa), b.get(pb));
+            case Seed.SHORT:
+                return Short.compare(a.getShort(pa), b.getShort(pb));
+            case Seed.CHAR:
+                return Character.compare(a.getChar(pa), b.getChar(pb));
+            case Seed.INT:
+                return Integer.compare(a.getInt(pa), b.getInt(pb));
+            case Seed.LONG:
+                return Long.compare(a.getLong(pa), b.getLong(pb));
+            case Seed.FLOAT:
+                return Float.compare(a.getFloat(pa), b.getFloat(pb));
+            case Seed.DOUBLE:
+                return Double.compare(a.getDouble(pa), b.getDouble(pb));
+            case Seed.STRING:
+            case Seed.VETOR:
+                return comparaBytes(a, pa + 4, a.getInt(pa),
+                        b, pb + 4, b.getInt(pb));
+            default:
+                throw new IllegalArgumentException("tipo inválido: " + tipo);
+        }
+    }
+
+    /**
+     * Equivalente a
+     * {@link #comparaCampo(byte, ByteBuffer, int, ByteBuffer, int)}
+     * para valores armazenados em vetores.
+     */
+    private static int comparaCampo(byte tipo, byte[] a, int pa,
+                                    byte[] b, int pb) {
+        switch (tipo) {
+            case Seed.BYTE:
+            case Seed.BOOLEAN:
+                return Byte.compare(a[pa], b[pb]);
+            case Seed.SHORT:
+                return Short.compare(curto(a, pa), curto(b, pb));
+            case Seed.CHAR:
+                return Character.compare((char) curto(a, pa), (char) curto(b, pb));
+            case Seed.INT:
+                return Integer.compare(Seed.inteiro(a, pa), Seed.inteiro(b, pb));
+            case Seed.LONG:
+                return Long.compare(Seed.longo(a, pa), Seed.longo(b, pb));
+            case Seed.FLOAT:
+                return Float.compare(Float.intBitsToFloat(Seed.inteiro(a, pa)),
+                        Float.intBitsToFloat(Seed.inteiro(b, pb)));
+            case Seed.DOUBLE:
+                return Double.compare(Double.longBitsToDouble(Seed.longo(a, pa)),
+                        Double.longBitsToDouble(Seed.longo(b, pb)));
+            case Seed.STRING:
+            case Seed.VETOR:
+                return comparaBytes(a, pa + 4, Seed.inteiro(a, pa),
+                        b, pb + 4, Seed.inteiro(b, pb));
+            default:
+                throw new IllegalArgumentException("tipo inválido: " + tipo);
+        }
+    }
+
+    /**
+     * Lê o {@code short} armazenado na posição indicada do vetor.
+     */
+    private static short curto(byte[] dados, int posicao) {
+        return (short) ((dados[posicao] << 8) | (dados[posicao + 1] & 0xFF));
+    }
+
+    /**
+     * Comparação lexicográfica, sem sinal, de duas sequências
+     * de bytes armazenadas em vetores.
+     */
+    private static int comparaBytes(byte[] a, int pa, int ta,
+                                    byte[] b, int pb, int tb) {
+        int n = Math.min(ta, tb);
+        for (int i = 0; i < n; i++) {
+            int r = (a[pa + i] & 0xFF) - (b[pb + i] & 0xFF);
+            if (r != 0) {
+                return r;
+            }
+        }
+
+        return Integer.compare(ta, tb);
+    }
+
+    /**
+     * Comparação lexicográfica, sem sinal, de duas sequências
+     * de bytes.
+     */
+    static int comparaBytes(ByteBuffer a, int pa, int ta,
+                            ByteBuffer b, int pb, int tb) {
+        int n = Math.min(ta, tb);
+        for (int i = 0; i < n; i++) {
+            int r = (a.get(pa + i) & 0xFF) - (b.get(pb + i) & 0xFF);
+            if (r != 0) {
+                return r;
+            }
+        }
+
+        return Integer.compare(ta, tb);
+    }
+}
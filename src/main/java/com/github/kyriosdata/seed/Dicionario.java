@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dicionário de sequências de caracteres, compartilhado pelos
+ * registros de um lote (veja {@link Lote}).
+ *
+ * <p>Cada valor distinto é armazenado uma única vez no dicionário
+ * e recebe um código, um inteiro a partir de zero, na ordem em que
+ * os valores são acrescentados. Os registros armazenam apenas o
+ * código, em um campo do tipo {@link Seed#INT}, por meio de
+ * {@link Seed#defineString(int, String, Dicionario)}. A leitura
+ * via {@link Seed#obtemString(int, Dicionario)} retorna sempre a
+ * mesma instância de {@code String} para um dado código, ou seja,
+ * não há decodificação nem alocação. Filtros podem comparar o
+ * código obtido por {@link #busca(String)} com o valor do campo,
+ * sem comparar sequências de caracteres.
+ *
+ * <p>A serialização do dicionário, produzida por {@link #array()},
+ * é formada pela quantidade de valores ({@code int}) seguida de
+ * cada um deles, na ordem dos códigos, conforme um campo do tipo
+ * {@link Seed#STRING}.
+ */
+public class Dicionario {
+
+    private final Map<String, Integer> codigos = new HashMap<>();
+    private final List<String> valores = new ArrayList<>();
+
+    /**
+     * Quantidade de bytes da serialização do dicionário.
+     */
+    private int tamanho = 4;
+
+    /**
+     * Recupera o código do valor, acrescentando-o ao dicionário,
+     * caso ainda não esteja presente.
+     *
+     * @param valor Valor cujo código é requisitado.
+     * @return Código do valor.
+     */
+    public int codigo(String valor) {
+        Integer codigo = codigos.get(valor);
+        if (codigo != null) {
+            return codigo;
+        }
+
+        int novo = valores.size();
+        valores.add(valor);
+        codigos.put(valor, novo);
+        tamanho = tamanho + 4 + valor.getBytes(StandardCharsets.UTF_8).length;
+        return novo;
+    }
+
+    /**
+     * Recupera o código do valor, sem alterar o dicionário.
+     *
+     * @param valor Valor cujo código é requisitado.
+     * @return Código do valor ou -1, caso o valor não esteja
+     * presente no dicionário.
+     */
+    public int busca(String valor) {
+        Integer codigo = codigos.get(valor);
+        return codigo == null ? -1 : codigo;
+    }
+
+    /**
+     * Recupera o valor correspondente ao código.
+     *
+     * @param codigo Código do valor.
+     * @return A instância (única) do valor associado ao código.
+     */
+    public String valor(int codigo) {
+        return valores.get(codigo);
+    }
+
+    /**
+     * Quantidade de valores distintos do dicionário.
+     *
+     * @return Quantidade de valores do dicionário.
+     */
+    public int quantidade() {
+        return valores.size();
+    }
+
+    /**
+     * Quantidade de bytes ocupada pela serialização do dicionário.
+     *
+     * @return Tamanho do vetor produzido por {@link #array()}.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Produz a serialização do dicionário.
+     *
+     * @return Vetor de bytes que contém o dicionário.
+     *
+     * @see #desserializa(ByteBuffer, int)
+     */
+    public byte[] array() {
+        ByteBuffer bytes = ByteBuffer.allocate(tamanho);
+        escreve(bytes);
+        return bytes.array();
+    }
+
+    /**
+     * Deposita a serialização do dicionário no buffer, a partir
+     * da posição corrente.
+     *
+     * @param destino Buffer que recebe o dicionário.
+     */
+    void escreve(ByteBuffer destino) {
+        destino.putInt(valores.size());
+        for (String valor : valores) {
+            byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+            destino.putInt(utf8.length);
+            destino.put(utf8);
+        }
+    }
+
+    /**
+     * Recupera dicionário previamente serializado.
+     *
+     * @param dados Buffer que contém o dicionário.
+     * @param inicio Posição inicial do dicionário no buffer.
+     * @return Dicionário recuperado.
+     *
+     * @see #array()
+     */
+    public static Dicionario desserializa(ByteBuffer dados, int inicio) {
+        Dicionario d = new Dicionario();
+        int quantidade = dados.getInt(inicio);
+        int posicao = inicio + 4;
+        ByteBuffer origem = dados.duplicate();
+        for (int i = 0; i < quantidade; i++) {
+            int tamanho = dados.getInt(posicao);
+            byte[] utf8 = new byte[tamanho];
+            origem.position(posicao + 4);
+            origem.get(utf8);
+
+            d.codigo(new String(utf8, StandardCharsets.UTF_8));
+            posicao = posicao + 4 + tamanho;
+        }
+
+        return d;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Escreve lotes de registros (veja {@link Lote}) em um arquivo,
+ * cada um deles precedido das estatísticas (<i>zone maps</i>) dos
+ * campos inteiros indicados (veja {@link Estatistica}).
+ *
+ * <p>Cada bloco do arquivo é formado pelo número mágico
+ * ({@code int}), pela quantidade de registros do lote ({@code int}),
+ * pela quantidade de estatísticas ({@code int}), pelas estatísticas,
+ * pela quantidade de bytes do lote ({@code int}) e, por último,
+ * pelo lote, conforme {@link Lote#array()}. Os blocos são sempre
+ * acrescentados ao final do arquivo. Na abertura, um bloco
+ * incompleto ao final do arquivo (escrita interrompida) é removido.
+ *
+ * @see LeitorLotes
+ */
+public class EscritorLotes implements Closeable {
+
+    /**
+     * Identifica o início de um bloco ("SDLT").
+     */
+    static final int MAGICO = 0x53444C54;
+
+    private final FileChannel canal;
+    private final int[] ordens;
+
+    /**
+     * Abre (ou cria) o arquivo para acréscimo de lotes.
+     *
+     * @param arquivo Arquivo que recebe os lotes.
+     * @param ordens Ordens dos campos inteiros cujas estatísticas
+     *               são registradas em cada bloco.
+     *
+     * @throws IOException Em caso de falha ao abrir o arquivo ou
+     * arquivo inválido.
+     */
+    public EscritorLotes(Path arquivo, int... ordens) throws IOException {
+        this.ordens = ordens.clone();
+
+        long validos = -1;
+        if (Files.exists(arquivo)) {
+            try (LeitorLotes leitor = new LeitorLotes(arquivo)) {
+                if (leitor.descartados() > 0) {
+                    validos = leitor.validos();
+                }
+            }
+        }
+
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (validos >= 0) {
+            try {
+                canal.truncate(validos);
+            } catch (IOException exp) {
+                canal.close();
+                throw exp;
+            }
+        }
+    }
+
+    /**
+     * Acrescenta o lote ao arquivo.
+     *
+     * @param lote Lote a ser acrescentado.
+     * @return Quantidade de bytes escritos.
+     *
+     * @throws IOException Em caso de falha de escrita.
+     * @throws IllegalArgumentException Se algum dos campos das
+     * estatísticas não é inteiro.
+     */
+    public long adiciona(Lote lote) throws IOException {
+        ByteBuffer cabecalho = ByteBuffer.allocate(
+                12 + Estatistica.TAMANHO * ordens.length + 4);
+        cabecalho.putInt(MAGICO);
+        cabecalho.putInt(lote.quantidade());
+        cabecalho.putInt(ordens.length);
+        for (int ordem : ordens) {
+            lote.estatistica(ordem).escreve(cabecalho);
+        }
+
+        byte[] bytes = lote.array();
+        cabecalho.putInt(bytes.length);
+        cabecalho.flip();
+
+        ByteBuffer[] buffers = { cabecalho, ByteBuffer.wrap(bytes) };
+        long total = cabecalho.remaining() + bytes.length;
+        long escritos = 0;
+        while (escritos < total) {
+            escritos = escritos + canal.write(buffers);
+        }
+
+        return escritos;
+    }
+
+    /**
+     * Assegura que os lotes acrescentados estão no dispositivo
+     * de armazenamento.
+     *
+     * @throws IOException Em caso de falha.
+     */
+    public void sincroniza() throws IOException {
+        canal.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Estatística (<i>zone map</i>) de um campo inteiro dos registros de
+ * um lote: menor e maior valores e quantidade de registros nos quais
+ * o campo está ausente (formato esparso).
+ *
+ * <p>Permite descartar um lote inteiro, sem lê-lo, quando nenhum
+ * valor do campo pode satisfazer um intervalo procurado (veja
+ * {@link #podeConter(long, long)} e {@link LeitorLotes}).
+ *
+ * @see Lote#estatistica(int)
+ */
+public final class Estatistica {
+
+    /**
+     * Quantidade de bytes da serialização de uma estatística:
+     * ordem ({@code int}), mínimo e máximo ({@code long}) e
+     * ausentes ({@code int}).
+     */
+    static final int TAMANHO = 4 + 8 + 8 + 4;
+
+    private final int ordem;
+    private final long minimo;
+    private final long maximo;
+    private final int ausentes;
+    private final int quantidade;
+
+    Estatistica(int ordem, long minimo, long maximo, int ausentes, int quantidade) {
+        this.ordem = ordem;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.ausentes = ausentes;
+        this.quantidade = quantidade;
+    }
+
+    /**
+     * Ordem do campo.
+     *
+     * @return Ordem do campo nos registros do lote.
+     */
+    public int ordem() {
+        return ordem;
+    }
+
+    /**
+     * Menor valor do campo no lote.
+     *
+     * @return Menor valor ou {@link Long#MAX_VALUE}, se o campo
+     * está ausente em todos os registros.
+     */
+    public long minimo() {
+        return minimo;
+    }
+
+    /**
+     * Maior valor do campo no lote.
+     *
+     * @return Maior valor ou {@link Long#MIN_VALUE}, se o campo
+     * está ausente em todos os registros.
+     */
+    public long maximo() {
+        return maximo;
+    }
+
+    /**
+     * Quantidade de registros nos quais o campo está ausente.
+     *
+     * @return Quantidade de registros sem valor para o campo.
+     */
+    public int ausentes() {
+        return ausentes;
+    }
+
+    /**
+     * Quantidade de registros do lote.
+     *
+     * @return Quantidade de registros.
+     */
+    public int quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Verifica se algum registro do lote pode possuir valor do
+     * campo no intervalo indicado.
+     *
+     * @param de Menor valor do intervalo (inclusive).
+     * @param ate Maior valor do intervalo (inclusive).
+     * @return {@code false} se e somente se nenhum registro do lote
+     * possui valor do campo no intervalo.
+     */
+    public boolean podeConter(long de, long ate) {
+        return ausentes < quantidade && de <= ate && maximo >= de && minimo <= ate;
+    }
+
+    /**
+     * Deposita a estatística no buffer, a partir da posição corrente.
+     */
+    void escreve(ByteBuffer destino) {
+        destino.putInt(ordem);
+        destino.putLong(minimo);
+        destino.putLong(maximo);
+        destino.putInt(ausentes);
+    }
+
+    /**
+     * Recupera estatística depositada por {@link #escreve(ByteBuffer)}.
+     */
+    static Estatistica le(ByteBuffer origem, int posicao, int quantidade) {
+        return new Estatistica(origem.getInt(posicao),
+                origem.getLong(posicao + 4),
+                origem.getLong(posicao + 12),
+                origem.getInt(posicao + 20),
+                quantidade);
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Índice <i>hash</i> que associa o valor de um campo (chave) à
+ * posição inicial do registro correspondente em uma sequência de
+ * registros (veja {@link LeitorRegistros}).
+ *
+ * <p>A posição obtida de uma busca pode ser empregada diretamente
+ * em {@link Seed#desserializa(ByteBuffer, int)}. O índice emprega
+ * endereçamento aberto (sondagem linear) sobre um buffer fora do
+ * <i>heap</i> ou mapeado em arquivo, ou seja, não há um único
+ * objeto por chave. Cada entrada ocupa 16 bytes: o valor da chave
+ * ({@code long}) e a posição do registro mais um ({@code long}),
+ * o que permite identificar entradas livres (zero).
+ *
+ * <p>Chaves dos tipos {@link Seed#BYTE}, {@link Seed#SHORT},
+ * {@link Seed#CHAR}, {@link Seed#INT} e {@link Seed#LONG} são
+ * armazenadas diretamente. Para {@link Seed#STRING} e
+ * {@link Seed#VETOR} é armazenado o <i>hash</i> dos bytes e, na
+ * busca, a chave é confirmada no próprio registro.
+ *
+ * <p>Chaves repetidas são aceitas. Nesse caso a busca retorna
+ * o primeiro registro, na ordem da sequência, com a chave.
+ * Registros nos quais o campo está ausente (formato esparso) não
+ * são indexados.
+ *
+ * <p>O formato do índice é: número mágico ({@code int}), ordem do
+ * campo ({@code int}), capacidade ({@code int}), quantidade de
+ * registros ({@code int}), tamanho em bytes da sequência de
+ * registros ({@code long}) e, na sequência, as entradas.
+ */
+public class IndiceHash {
+
+    /**
+     * Identifica um arquivo de índice ("SDIX").
+     */
+    private static final int MAGICO = 0x53444958;
+
+    /**
+     * Tamanho do cabeçalho do índice.
+     */
+    private static final int CABECALHO = 24;
+
+    /**
+     * Tamanho de cada entrada (chave e posição).
+     */
+    private static final int ENTRADA = 16;
+
+    /**
+     * Sequência de registros indexada.
+     */
+    private final ByteBuffer dados;
+
+    /**
+     * Cabeçalho e entradas do índice.
+     */
+    private final ByteBuffer indice;
+
+    private final int ordem;
+    private final byte tipo;
+    private final int mascara;
+    private final int quantidade;
+
+    private IndiceHash(ByteBuffer dados, ByteBuffer indice) {
+        if (indice.getInt(0) != MAGICO) {
+            throw new IllegalArgumentException("não é um índice");
+        }
+
+        if (indice.getLong(16) != dados.limit()) {
+            throw new IllegalArgumentException("índice de outros dados");
+        }
+
+        this.dados = dados;
+        this.indice = indice;
+        this.ordem = indice.getInt(4);
+        this.mascara = indice.getInt(8) - 1;
+        this.quantidade = indice.getInt(12);
+        this.tipo = quantidade == 0 ? Seed.LONG : Seed.tipo(dados, 0, ordem);
+    }
+
+    /**
+     * Cria índice, fora do <i>heap</i>, para o campo indicado dos
+     * registros da sequência.
+     *
+     * @param dados Sequência de registros, da posição zero até o
+     *              limite do buffer.
+     * @param ordem Ordem do campo (chave) nos registros.
+     * @return Índice criado.
+     */
+    public static IndiceHash cria(ByteBuffer dados, int ordem) {
+        int capacidade = capacidade(conta(dados));
+        ByteBuffer indice = ByteBuffer.allocateDirect(
+                CABECALHO + capacidade * ENTRADA);
+
+        return preenche(dados, ordem, capacidade, indice);
+    }
+
+    /**
+     * Cria índice para o campo indicado dos registros da sequência,
+     * mapeado no arquivo fornecido. O arquivo permanece disponível
+     * para uso posterior via {@link #abre(Path, ByteBuffer)}.
+     *
+     * @param dados Sequência de registros, da posição zero até o
+     *              limite do buffer.
+     * @param ordem Ordem do campo (chave) nos registros.
+     * @param arquivo Arquivo a ser criado (ou sobrescrito) com o índice.
+     * @return Índice criado.
+     *
+     * @throws IOException Em caso de falha ao criar o arquivo.
+     */
+    public static IndiceHash cria(ByteBuffer dados, int ordem, Path arquivo)
+            throws IOException {
+        int capacidade = capacidade(conta(dados));
+
+        try (FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer indice = canal.map(
+                    FileChannel.MapMode.READ_WRITE, 0, CABECALHO
+                            + (long) capacidade * ENTRADA);
+
+            IndiceHash criado = preenche(dados, ordem, capacidade, indice);
+            ((MappedByteBuffer) indice).force();
+            return criado;
+        }
+    }
+
+    /**
+     * Abre índice previamente criado por
+     * {@link #cria(ByteBuffer, int, Path)}.
+     *
+     * @param arquivo Arquivo que contém o índice.
+     * @param dados A mesma sequência de registros empregada na
+     *              criação do índice.
+     * @return Índice mapeado em memória (somente leitura).
+     *
+     * @throws IOException Em caso de falha ao abrir o arquivo.
+     */
+    public static IndiceHash abre(Path arquivo, ByteBuffer dados)
+            throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.READ)) {
+            ByteBuffer indice = canal.map(
+                    FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return new IndiceHash(dados, indice);
+        }
+    }
+
+    /**
+     * Quantidade de registros indexados.
+     *
+     * @return Quantidade de registros indexados.
+     */
+    public int quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Recupera a posição do registro cujo campo indexado, numérico,
+     * possui o valor indicado.
+     *
+     * @param chave Valor do campo procurado.
+     * @return Posição inicial do registro na sequência ou -1, caso
+     * não exista registro com a chave.
+     */
+    public int busca(long chave) {
+        if (tipo == Seed.STRING || tipo == Seed.VETOR) {
+            throw new IllegalStateException("chave não é numérica");
+        }
+
+        int slot = espalha(chave) & mascara;
+        while (true) {
+            int entrada = CABECALHO + slot * ENTRADA;
+            long posicao = indice.getLong(entrada + 8);
+            if (posicao == 0) {
+                return -1;
+            }
+
+            if (indice.getLong(entrada) == chave) {
+                return (int) (posicao - 1);
+            }
+
+            slot = (slot + 1) & mascara;
+        }
+    }
+
+    /**
+     * Recupera a posição do registro cujo campo indexado, do tipo
+     * {@link Seed#STRING}, possui o valor indicado.
+     *
+     * @param chave Valor do campo procurado.
+     * @return Posição inicial do registro na sequência ou -1, caso
+     * não exista registro com a chave.
+     */
+    public int busca(String chave) {
+        return busca(chave.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Recupera a posição do registro cujo campo indexado, do tipo
+     * {@link Seed#STRING} ou {@link Seed#VETOR}, possui os bytes
+     * indicados.
+     *
+     * @param chave Bytes do campo procurado.
+     * @return Posição inicial do registro na sequência ou -1, caso
+     * não exista registro com a chave.
+     */
+    public int busca(byte[] chave) {
+        if (tipo != Seed.STRING && tipo != Seed.VETOR) {
+            throw new IllegalStateException("chave numérica");
+        }
+
+        ByteBuffer procurada = ByteBuffer.wrap(chave);
+        long hash = hash(procurada, 0, chave.length);
+
+        int slot = espalha(hash) & mascara;
+        while (true) {
+            int entrada = CABECALHO + slot * ENTRADA;
+            long posicao = indice.getLong(entrada + 8);
+            if (posicao == 0) {
+                return -1;
+            }
+
+            if (indice.getLong(entrada) == hash) {
+                int inicio = (int) (posicao - 1);
+                int campo = Seed.offset(dados, inicio, ordem);
+                int tamanho = dados.getInt(campo);
+                if (ComparadorRegistros.comparaBytes(dados, campo + 4,
+                        tamanho, procurada, 0, chave.length) == 0) {
+                    return inicio;
+                }
+            }
+
+            slot = (slot + 1) & mascara;
+        }
+    }
+
+    /**
+     * Insere no índice todos os registros da sequência.
+     */
+    private static IndiceHash preenche(ByteBuffer dados, int ordem,
+                                       int capacidade, ByteBuffer indice) {
+        int mascara = capacidade - 1;
+        int quantidade = 0;
+        int inicio = 0;
+        while (inicio < dados.limit()) {
+            if (!Seed.presente(dados, inicio, ordem)) {
+                inicio = inicio + Seed.tamanhoRegistro(dados, inicio);
+                continue;
+            }
+
+            long chave = chave(dados, inicio, ordem);
+
+            int slot = espalha(chave) & mascara;
+            while (indice.getLong(CABECALHO + slot * ENTRADA + 8) != 0) {
+                slot = (slot + 1) & mascara;
+            }
+
+            int entrada = CABECALHO + slot * ENTRADA;
+            indice.putLong(entrada, chave);
+            indice.putLong(entrada + 8, inicio + 1L);
+
+            quantidade++;
+            inicio = inicio + Seed.tamanhoRegistro(dados, inicio);
+        }
+
+        indice.putInt(0, MAGICO);
+        indice.putInt(4, ordem);
+        indice.putInt(8, capacidade);
+        indice.putInt(12, quantidade);
+        indice.putLong(16, dados.limit());
+
+        return new IndiceHash(dados, indice);
+    }
+
+    /**
+     * Valor armazenado no índice para o campo do registro: o próprio
+     * valor, para tipos numéricos, ou o <i>hash</i> dos bytes.
+     */
+    private static long chave(ByteBuffer dados, int inicio, int ordem) {
+        int campo = Seed.offset(dados, inicio, ordem);
+        byte tipo = Seed.tipo(dados, inicio, ordem);
+        switch (tipo) {
+            case Seed.BYTE:
+                return dados.get(campo);
+            case Seed.SHORT:
+                return dados.getShort(campo);
+            case Seed.CHAR:
+                return dados.getChar(campo);
+            case Seed.INT:
+                return dados.getInt(campo);
+            case Seed.LONG:
+                return dados.getLong(campo);
+            case Seed.STRING:
+            case Seed.VETOR:
+                return hash(dados, campo + 4, dados.getInt(campo));
+            default:
+                throw new IllegalArgumentException("tipo não indexável: " + tipo);
+        }
+    }
+
+    /**
+     * Quantidade de registros da sequência.
+     */
+    private static int conta(ByteBuffer dados) {
+        int quantidade = 0;
+        int inicio = 0;
+        while (inicio < dados.limit()) {
+            quantidade++;
+            inicio = inicio + Seed.tamanhoRegistro(dados, inicio);
+        }
+
+        return quantidade;
+    }
+
+    /**
+     * Menor potência de 2 que mantém a taxa de ocupação do índice
+     * em, no máximo, 70%.
+     */
+    private static int capacidade(int quantidade) {
+        int capacidade = 2;
+        while (capacidade * 7L < quantidade * 10L) {
+            capacidade = capacidade << 1;
+        }
+
+        if (CABECALHO + (long) capacidade * ENTRADA > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("registros em excesso");
+        }
+
+        return capacidade;
+    }
+
+    /**
+     * <i>Hash</i> FNV-1a (64 bits) da sequência de bytes.
+     */
+    private static long hash(ByteBuffer bytes, int inicio, int tamanho) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = inicio; i < inicio + tamanho; i++) {
+            h = (h ^ (bytes.get(i) & 0xFF)) * 0x100000001b3L;
+        }
+
+        return h;
+    }
+
+    /**
+     * Espalha os bits da chave (finalizador do MurmurHash3), o que
+     * evita agrupamentos de chaves sequenciais no índice.
+     */
+    private static int espalha(long chave) {
+        long h = chave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Lê lotes de registros de um arquivo produzido por
+ * {@link EscritorLotes}, com descarte de blocos por meio das
+ * estatísticas (<i>zone maps</i>) registradas.
+ *
+ * <p>Na abertura apenas os cabeçalhos dos blocos (estatísticas) são
+ * lidos. Na varredura por um intervalo de valores de um campo
+ * ({@link #varre(int, long, long, Consumer)}), um bloco cuja
+ * estatística do campo indica que nenhum registro pode pertencer ao
+ * intervalo não é lido. Blocos sem estatística para o campo são
+ * sempre lidos.
+ *
+ * <p>Um bloco incompleto ao final do arquivo, produzido por escrita
+ * interrompida, é ignorado: apenas os blocos completos que o
+ * antecedem são oferecidos. A quantidade de bytes ignorados é
+ * fornecida por {@link #descartados()}.
+ */
+public class LeitorLotes implements Closeable {
+
+    /**
+     * Posição, tamanho e estatísticas de um bloco.
+     */
+    private static final class Bloco {
+        final long posicao;
+        final int tamanho;
+        final Estatistica[] estatisticas;
+
+        Bloco(long posicao, int tamanho, Estatistica[] estatisticas) {
+            this.posicao = posicao;
+            this.tamanho = tamanho;
+            this.estatisticas = estatisticas;
+        }
+    }
+
+    private final FileChannel canal;
+    private final List<Bloco> blocos = new ArrayList<>();
+    private long blocosLidos;
+
+    /**
+     * Quantidade de bytes ocupados pelos blocos completos.
+     */
+    private long validos;
+
+    /**
+     * Quantidade de bytes do bloco incompleto ao final do arquivo.
+     */
+    private long descartados;
+
+    /**
+     * Abre o arquivo e lê os cabeçalhos dos blocos.
+     *
+     * @param arquivo Arquivo produzido por {@link EscritorLotes}.
+     *
+     * @throws IOException Em caso de falha de leitura ou arquivo
+     * inválido.
+     */
+    public LeitorLotes(Path arquivo) throws IOException {
+        canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        try {
+            long posicao = 0;
+            long tamanho = canal.size();
+            while (posicao < tamanho) {
+                if (posicao + 12 > tamanho) {
+                    break;
+                }
+
+                ByteBuffer inicio = le(posicao, 12);
+                if (inicio.getInt(0) != EscritorLotes.MAGICO) {
+                    throw new IOException("bloco inválido na posição " + posicao);
+                }
+
+                int quantidade = inicio.getInt(4);
+                int n = inicio.getInt(8);
+                long cabecalho = 12 + (long) Estatistica.TAMANHO * n + 4;
+                if (n < 0 || posicao + cabecalho > tamanho) {
+                    break;
+                }
+
+                ByteBuffer resto = le(posicao + 12, (int) cabecalho - 12);
+                Estatistica[] estatisticas = new Estatistica[n];
+                for (int i = 0; i < n; i++) {
+                    estatisticas[i] = Estatistica.le(resto, Estatistica.TAMANHO * i, quantidade);
+                }
+
+                int bytes = resto.getInt(Estatistica.TAMANHO * n);
+                long lote = posicao + cabecalho;
+                if (bytes < 0 || lote + bytes > tamanho) {
+                    break;
+                }
+
+                blocos.add(new Bloco(lote, bytes, estatisticas));
+                posicao = lote + bytes;
+            }
+
+            validos = posicao;
+            descartados = tamanho - posicao;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Quantidade de blocos (lotes) do arquivo.
+     *
+     * @return Quantidade de blocos.
+     */
+    public int blocos() {
+        return blocos.size();
+    }
+
+    /**
+     * Quantidade de bytes, ao final do arquivo, de um bloco
+     * incompleto, ignorado na abertura.
+     *
+     * @return Zero, se o arquivo termina com um bloco completo.
+     */
+    public long descartados() {
+        return descartados;
+    }
+
+    /**
+     * Quantidade de bytes ocupados pelos blocos completos, ou seja,
+     * tamanho do arquivo sem o bloco incompleto ao final.
+     */
+    long validos() {
+        return validos;
+    }
+
+    /**
+     * Quantidade de blocos efetivamente lidos, desde a abertura.
+     *
+     * @return Total de blocos lidos.
+     */
+    public long blocosLidos() {
+        return blocosLidos;
+    }
+
+    /**
+     * Recupera a estatística de um campo de um bloco.
+     *
+     * @param bloco Índice do bloco, de 0 até {@link #blocos()} - 1.
+     * @param ordem Ordem do campo.
+     * @return Estatística do campo ou {@code null}, caso não tenha
+     * sido registrada.
+     */
+    public Estatistica estatistica(int bloco, int ordem) {
+        for (Estatistica e : blocos.get(bloco).estatisticas) {
+            if (e.ordem() == ordem) {
+                return e;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Lê o lote de um bloco.
+     *
+     * @param bloco Índice do bloco, de 0 até {@link #blocos()} - 1.
+     * @return Lote do bloco.
+     *
+     * @throws IOException Em caso de falha de leitura.
+     */
+    public Lote lote(int bloco) throws IOException {
+        Bloco b = blocos.get(bloco);
+        blocosLidos++;
+        return Lote.desserializa(le(b.posicao, b.tamanho).array());
+    }
+
+    /**
+     * Fornece ao consumidor, na ordem do arquivo, os registros cujo
+     * valor do campo inteiro indicado pertence ao intervalo. Blocos
+     * que não podem conter tais registros, conforme as estatísticas,
+     * não são lidos.
+     *
+     * @param ordem Ordem do campo inteiro.
+     * @param de Menor valor do intervalo (inclusive).
+     * @param ate Maior valor do intervalo (inclusive).
+     * @param consumidor Recebe cada registro que satisfaz o intervalo.
+     * @return Quantidade de registros fornecidos ao consumidor.
+     *
+     * @throws IOException Em caso de falha de leitura.
+     */
+    public long varre(int ordem, long de, long ate, Consumer<Seed> consumidor)
+            throws IOException {
+        long encontrados = 0;
+        for (int i = 0; i < blocos.size(); i++) {
+            Estatistica e = estatistica(i, ordem);
+            if (e != null && !e.podeConter(de, ate)) {
+                continue;
+            }
+
+            Lote lote = lote(i);
+            for (int r = 0; r < lote.quantidade(); r++) {
+                if (lote.contem(r, ordem, de, ate)) {
+                    consumidor.accept(lote.registro(r));
+                    encontrados++;
+                }
+            }
+        }
+
+        return encontrados;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Lê, do arquivo, os bytes a partir da posição indicada.
+     */
+    private ByteBuffer le(long posicao, int quantidade) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(quantidade);
+        while (buffer.hasRemaining()) {
+            int lidos = canal.read(buffer, posicao + buffer.position());
+            if (lidos < 0) {
+                throw new EOFException("bloco incompleto");
+            }
+        }
+
+        return buffer;
+    }
+}
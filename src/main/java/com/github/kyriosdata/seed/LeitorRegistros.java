@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Recupera, um por vez, os registros de uma sequência de registros
+ * serializados.
+ *
+ * <p>Uma sequência de registros é simplesmente a concatenação dos
+ * vetores produzidos por {@link Seed#array()}, ou seja, o mesmo
+ * formato percorrido por {@link Seed#desserializa(byte[], int)}.
+ * Cada registro é delimitado a partir da própria metainformação,
+ * não há informação adicional entre eles.
+ */
+public class LeitorRegistros implements Closeable {
+
+    /**
+     * Fonte dos bytes da sequência de registros.
+     */
+    private final InputStream entrada;
+
+    /**
+     * Área na qual o registro corrente é montado. Reutilizada
+     * entre registros.
+     */
+    private byte[] area = new byte[128];
+
+    /**
+     * Quantidade de bytes ocupados da área de montagem.
+     */
+    private int usados;
+
+    /**
+     * Cria leitor para a sequência de registros fornecida.
+     *
+     * @param entrada Fonte da sequência de registros. Convém que
+     *                seja "bufferizada".
+     */
+    public LeitorRegistros(InputStream entrada) {
+        this.entrada = entrada;
+    }
+
+    /**
+     * Recupera o próximo registro da sequência.
+     *
+     * @return Vetor de bytes com o próximo registro, exatamente
+     * como produzido por {@link Seed#array()}, ou {@code null},
+     * caso não exista próximo registro.
+     *
+     * @throws IOException Em caso de falha de leitura ou
+     * sequência interrompida no meio de um registro.
+     */
+    public byte[] proximo() throws IOException {
+        int primeiro = entrada.read();
+        if (primeiro < 0) {
+            return null;
+        }
+
+        usados = 0;
+        garante(1);
+        area[usados++] = (byte) primeiro;
+
+        le(1);
+        if (area[1] == Seed.LARGO) {
+            return proximoLargo();
+        }
+
+        if (area[1] == Seed.ESPARSO) {
+            return proximoEsparso();
+        }
+
+        int quantidade = area[1];
+        le(quantidade);
+
+        for (int i = 0; i < quantidade; i++) {
+            byte tipo = area[2 + i];
+            if (tipo == Seed.STRING || tipo == Seed.VETOR) {
+                le(4);
+                le(inteiro(usados - 4));
+            } else {
+                le(Seed.tamanhoDoTipo(tipo));
+            }
+        }
+
+        return Arrays.copyOf(area, usados);
+    }
+
+    /**
+     * Recupera o restante de um registro no formato largo, cujo
+     * tamanho é a última entrada da tabela de posições.
+     */
+    private byte[] proximoLargo() throws IOException {
+        le(4);
+        int quantidade = inteiro(2);
+        le(quantidade + 4 * (quantidade + 1));
+
+        int fim = inteiro(usados - 4);
+        le(fim - usados);
+
+        return Arrays.copyOf(area, usados);
+    }
+
+    /**
+     * Recupera o restante de um registro no formato esparso, do
+     * qual apenas os campos presentes no mapa de bits são lidos.
+     */
+    private byte[] proximoEsparso() throws IOException {
+        le(4);
+        int quantidade = inteiro(2);
+        int palavras = (quantidade + 63) >>> 6;
+        le(quantidade);
+        le(8 * palavras);
+
+        int tipos = Seed.POS_TIPOS_LARGO;
+        int mapa = tipos + quantidade;
+        for (int i = 0; i < quantidade; i++) {
+            int octeto = area[mapa + 8 * (i >>> 6) + 7 - ((i & 63) >>> 3)];
+            if ((octeto & (1 << (i & 7))) == 0) {
+                continue;
+            }
+
+            byte tipo = area[tipos + i];
+            if (tipo == Seed.STRING || tipo == Seed.VETOR) {
+                le(4);
+                le(inteiro(usados - 4));
+            } else {
+                le(Seed.tamanhoDoTipo(tipo));
+            }
+        }
+
+        return Arrays.copyOf(area, usados);
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    /**
+     * Acrescenta à área de montagem os próximos bytes da entrada.
+     */
+    private void le(int quantidade) throws IOException {
+        if (quantidade < 0) {
+            throw new IOException("registro inválido");
+        }
+
+        garante(quantidade);
+
+        int lidos = 0;
+        while (lidos < quantidade) {
+            int n = entrada.read(area, usados + lidos, quantidade - lidos);
+            if (n < 0) {
+                throw new EOFException("registro incompleto");
+            }
+
+            lidos = lidos + n;
+        }
+
+        usados = usados + quantidade;
+    }
+
+    /**
+     * Assegura espaço na área de montagem para os bytes indicados.
+     */
+    private void garante(int adicionais) {
+        int necessario = usados + adicionais;
+        if (necessario > area.length) {
+            area = Arrays.copyOf(area, Math.max(necessario, area.length * 2));
+        }
+    }
+
+    /**
+     * Inteiro (big-endian) armazenado na posição da área.
+     */
+    private int inteiro(int posicao) {
+        return ((area[posicao] & 0xFF) << 24)
+                | ((area[posicao + 1] & 0xFF) << 16)
+                | ((area[posicao + 2] & 0xFF) << 8)
+                | (area[posicao + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Log de registros serializados, somente para acréscimo, com
+ * persistência em grupo (<i>group commit</i>).
+ *
+ * <p>Vários produtores podem acrescentar registros simultaneamente
+ * por meio de {@link #anexa(byte[])}. O produtor não realiza
+ * entrada e saída: o registro é apenas enfileirado e a confirmação
+ * é obtida via {@link CompletableFuture}. Uma única <i>thread</i>
+ * de escrita retira da fila todos os registros disponíveis, os
+ * escreve de uma só vez e executa um único {@link FileChannel#force}
+ * para todo o grupo. Apenas então as confirmações são concluídas.
+ * Nenhum bloco {@code synchronized} é empregado. A fila é limitada:
+ * quando cheia, o produtor aguarda até que o escritor retire
+ * registros dela.
+ *
+ * <p>O log é formado por segmentos, arquivos cujo nome é a posição
+ * (no log) do primeiro byte do segmento, com 20 dígitos e extensão
+ * {@value #EXTENSAO}. Um novo segmento é criado sempre que o
+ * acréscimo de um registro ultrapassa o tamanho máximo de um
+ * segmento. Cada segmento é uma sequência de registros conforme
+ * {@link LeitorRegistros}.
+ *
+ * <p>Na abertura, um registro incompleto ao final do último
+ * segmento (escrita interrompida) é descartado. Em caso de falha de
+ * escrita, os bytes não confirmados são descartados e o segmento é
+ * reaberto. Se nem isso é possível, o log passa a rejeitar novos
+ * registros.
+ */
+public class LogRegistros implements Closeable {
+
+    /**
+     * Extensão dos arquivos de segmentos.
+     */
+    public static final String EXTENSAO = ".seg";
+
+    /**
+     * Quantidade máxima de registros de um mesmo grupo.
+     */
+    private static final int MAXIMO_GRUPO = 4096;
+
+    /**
+     * Capacidade da fila de registros, caso não seja indicada.
+     */
+    private static final int CAPACIDADE = 4 * MAXIMO_GRUPO;
+
+    /**
+     * Marca, na fila, o encerramento do log.
+     */
+    private static final Pedido FIM = new Pedido(new byte[0]);
+
+    private final Path diretorio;
+    private final long tamanhoSegmento;
+    private final BlockingQueue<Pedido> fila;
+    private final Thread escritor;
+    private volatile boolean fechado;
+
+    /**
+     * Falha que impede o uso do log ou {@code null}.
+     */
+    private volatile IOException falha;
+
+    /**
+     * Quantidade de execuções de {@link FileChannel#force(boolean)}.
+     */
+    private volatile long persistencias;
+
+    /**
+     * Canal do segmento corrente (empregado apenas pelo escritor).
+     */
+    private FileChannel canal;
+
+    /**
+     * Posição, no log, do primeiro byte do segmento corrente.
+     */
+    private long base;
+
+    /**
+     * Posição, no log, do próximo registro a ser escrito.
+     */
+    private long posicao;
+
+    /**
+     * Abre (ou cria) o log no diretório indicado. Caso existam
+     * segmentos, novos registros são acrescentados ao último deles.
+     *
+     * @param diretorio Diretório que contém os segmentos do log.
+     * @param tamanhoSegmento Tamanho máximo, em bytes, de um segmento.
+     *
+     * @throws IOException Em caso de falha ao abrir o último segmento.
+     */
+    public LogRegistros(Path diretorio, long tamanhoSegmento)
+            throws IOException {
+        this(diretorio, tamanhoSegmento, CAPACIDADE);
+    }
+
+    /**
+     * Abre (ou cria) o log no diretório indicado. Caso existam
+     * segmentos, novos registros são acrescentados ao último deles.
+     *
+     * @param diretorio Diretório que contém os segmentos do log.
+     * @param tamanhoSegmento Tamanho máximo, em bytes, de um segmento.
+     * @param capacidade Quantidade máxima de registros aguardando
+     *                   persistência.
+     *
+     * @throws IOException Em caso de falha ao abrir o último segmento.
+     */
+    public LogRegistros(Path diretorio, long tamanhoSegmento, int capacidade)
+            throws IOException {
+        if (tamanhoSegmento <= 0) {
+            throw new IllegalArgumentException("tamanho inválido");
+        }
+
+        this.diretorio = Files.createDirectories(diretorio);
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.fila = new LinkedBlockingQueue<>(capacidade);
+
+        List<Path> existentes = segmentos(diretorio);
+        if (existentes.isEmpty()) {
+            abreSegmento(0, 0);
+        } else {
+            Path ultimo = existentes.get(existentes.size() - 1);
+            abreSegmento(base(ultimo), completos(ultimo));
+        }
+
+        escritor = new Thread(this::escreve, "seed-log-" + diretorio.getFileName());
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Recupera os segmentos do log, na ordem em que foram criados.
+     *
+     * @param diretorio Diretório que contém os segmentos do log.
+     * @return Arquivos dos segmentos do log.
+     *
+     * @throws IOException Em caso de falha ao consultar o diretório.
+     */
+    public static List<Path> segmentos(Path diretorio) throws IOException {
+        List<Path> segmentos = new ArrayList<>();
+        try (DirectoryStream<Path> ds =
+                     Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            for (Path segmento : ds) {
+                segmentos.add(segmento);
+            }
+        }
+
+        // Nomes de tamanho fixo, ordem lexicográfica é a do log.
+        segmentos.sort(null);
+        return segmentos;
+    }
+
+    /**
+     * Acrescenta o registro ao log. Aguarda, caso a fila de registros
+     * a serem persistidos esteja cheia.
+     *
+     * @param registro Registro serializado, conforme
+     *                 {@link Seed#array()}.
+     * @return Confirmação, concluída após o registro ter sido
+     * persistido, com a posição do registro no log. Em caso de falha
+     * ou de interrupção durante a espera, concluída excepcionalmente.
+     *
+     * @throws IllegalStateException Se o log foi fechado ou não pode
+     * mais ser empregado, em decorrência de falha anterior.
+     */
+    public CompletableFuture<Long> anexa(byte[] registro) {
+        if (fechado) {
+            throw new IllegalStateException("log fechado");
+        }
+
+        if (falha != null) {
+            throw new IllegalStateException("log em falha", falha);
+        }
+
+        Pedido pedido = new Pedido(registro);
+        try {
+            fila.put(pedido);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            pedido.confirmacao.completeExceptionally(exp);
+            return pedido.confirmacao;
+        }
+
+        // Fechado simultaneamente. Se o pedido ainda está na fila,
+        // não será persistido.
+        if (fechado && fila.remove(pedido)) {
+            pedido.confirmacao.completeExceptionally(
+                    new IllegalStateException("log fechado"));
+        }
+
+        return pedido.confirmacao;
+    }
+
+    /**
+     * Quantidade de vezes em que registros foram persistidos, ou
+     * seja, de grupos escritos, desde a abertura do log.
+     *
+     * @return Total de execuções de {@link FileChannel#force(boolean)}.
+     */
+    public long persistencias() {
+        return persistencias;
+    }
+
+    /**
+     * Fecha o log após persistir todos os registros já acrescentados.
+     *
+     * @throws IOException Em caso de falha ao fechar o segmento corrente.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fechado) {
+            return;
+        }
+
+        fechado = true;
+
+        try {
+            fila.put(FIM);
+            escritor.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+
+        canal.close();
+    }
+
+    /**
+     * Laço executado pela <i>thread</i> de escrita.
+     */
+    private void escreve() {
+        List<Pedido> grupo = new ArrayList<>();
+        boolean encerrar = false;
+        while (!encerrar || !fila.isEmpty()) {
+            if (!encerrar) {
+                try {
+                    grupo.add(fila.take());
+                } catch (InterruptedException exp) {
+                    continue;
+                }
+            }
+
+            fila.drainTo(grupo, MAXIMO_GRUPO);
+
+            // Pedidos após o fim (aceitos durante o fechamento)
+            // também são persistidos.
+            encerrar = grupo.remove(FIM) || encerrar;
+
+            persiste(grupo);
+            grupo.clear();
+        }
+    }
+
+    /**
+     * Escreve e persiste os registros do grupo, eventualmente em
+     * mais de um segmento, e conclui as confirmações.
+     */
+    private void persiste(List<Pedido> grupo) {
+        int inicio = 0;
+        while (inicio < grupo.size()) {
+            if (falha != null) {
+                rejeita(grupo, inicio, falha);
+                return;
+            }
+
+            int fim = inicio;
+            long ocupados = posicao - base;
+            while (fim < grupo.size()) {
+                int tamanho = grupo.get(fim).registro.length;
+                if (ocupados > 0 && ocupados + tamanho > tamanhoSegmento) {
+                    break;
+                }
+
+                ocupados = ocupados + tamanho;
+                fim++;
+            }
+
+            try {
+                if (fim == inicio) {
+                    // Registro não cabe no segmento corrente
+                    canal.close();
+                    abreSegmento(posicao, 0);
+                    continue;
+                }
+
+                escreve(grupo, inicio, fim);
+            } catch (IOException exp) {
+                rejeita(grupo, inicio, exp);
+                restaura();
+                return;
+            }
+
+            inicio = fim;
+        }
+    }
+
+    /**
+     * Conclui excepcionalmente as confirmações do grupo a partir
+     * do pedido indicado.
+     */
+    private static void rejeita(List<Pedido> grupo, int inicio, IOException exp) {
+        for (int i = inicio; i < grupo.size(); i++) {
+            grupo.get(i).confirmacao.completeExceptionally(exp);
+        }
+    }
+
+    /**
+     * Reabre o segmento corrente, após falha, sem os bytes
+     * eventualmente escritos e não confirmados. Caso não seja
+     * possível, o log passa a rejeitar novos registros.
+     */
+    private void restaura() {
+        try {
+            canal.close();
+        } catch (IOException exp) {
+            // Canal é substituído na sequência
+        }
+
+        try {
+            abreSegmento(base, posicao - base);
+        } catch (IOException exp) {
+            falha = exp;
+        }
+    }
+
+    /**
+     * Escreve (<i>gathering write</i>) e persiste os registros do
+     * intervalo no segmento corrente.
+     */
+    private void escreve(List<Pedido> grupo, int inicio, int fim)
+            throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[fim - inicio];
+        long total = 0;
+        for (int i = inicio; i < fim; i++) {
+            buffers[i - inicio] = ByteBuffer.wrap(grupo.get(i).registro);
+            total = total + grupo.get(i).registro.length;
+        }
+
+        long escritos = 0;
+        while (escritos < total) {
+            escritos = escritos + canal.write(buffers);
+        }
+
+        canal.force(false);
+        persistencias++;
+
+        for (int i = inicio; i < fim; i++) {
+            Pedido pedido = grupo.get(i);
+            pedido.confirmacao.complete(posicao);
+            posicao = posicao + pedido.registro.length;
+        }
+    }
+
+    /**
+     * Abre (ou cria) o segmento cujo primeiro byte está na posição
+     * indicada do log, do qual apenas os primeiros bytes indicados
+     * são mantidos.
+     */
+    private void abreSegmento(long inicio, long validos) throws IOException {
+        Path arquivo = diretorio.resolve(String.format("%020d%s", inicio, EXTENSAO));
+        FileChannel novo = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            if (novo.size() > validos) {
+                novo.truncate(validos);
+                novo.force(false);
+            }
+        } catch (IOException exp) {
+            novo.close();
+            throw exp;
+        }
+
+        canal = novo;
+        base = inicio;
+        posicao = inicio + novo.size();
+    }
+
+    /**
+     * Quantidade de bytes ocupados pelos registros completos do
+     * segmento. Um registro incompleto só é admitido ao final.
+     */
+    private static long completos(Path segmento) throws IOException {
+        long validos = 0;
+        try (LeitorRegistros leitor = new LeitorRegistros(
+                new BufferedInputStream(Files.newInputStream(segmento)))) {
+            byte[] registro;
+            while ((registro = leitor.proximo()) != null) {
+                validos = validos + registro.length;
+            }
+        } catch (EOFException exp) {
+            // Escrita interrompida, registro incompleto descartado
+        }
+
+        return validos;
+    }
+
+    /**
+     * Posição no log do primeiro byte do segmento.
+     */
+    private static long base(Path segmento) throws IOException {
+        String nome = segmento.getFileName().toString();
+        try {
+            return Long.parseLong(nome.substring(0, nome.length() - EXTENSAO.length()));
+        } catch (NumberFormatException exp) {
+            throw new IOException("segmento inválido: " + nome, exp);
+        }
+    }
+
+    /**
+     * Registro a ser acrescentado e a confirmação correspondente.
+     */
+    private static final class Pedido {
+        private final byte[] registro;
+        private final CompletableFuture<Long> confirmacao = new CompletableFuture<>();
+
+        Pedido(byte[] registro) {
+            this.registro = registro;
+        }
+    }
+}
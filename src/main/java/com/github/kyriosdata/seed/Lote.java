@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Lote (bloco) de registros serializados, com um dicionário
+ * compartilhado por todos eles.
+ *
+ * <p>Os registros são mantidos em uma sequência de registros (veja
+ * {@link LeitorRegistros}), sem cópia ou conversão. Sequências de
+ * caracteres repetidas podem ser armazenadas no dicionário do lote,
+ * obtido por {@link #dicionario()}, e nos registros apenas os
+ * códigos correspondentes (veja {@link Dicionario}).
+ *
+ * <p>Campos numéricos inteiros ({@link Seed#BYTE}, {@link Seed#SHORT},
+ * {@link Seed#CHAR}, {@link Seed#INT} e {@link Seed#LONG}) podem ser
+ * armazenados em colunas (veja {@link #colunar(int)}). Na serialização
+ * do lote, os valores de um campo colunar de todos os registros são
+ * codificados por {@link ColunaNumerica} e removidos dos registros.
+ * Na desserialização os registros são restabelecidos e os valores
+ * decodificados permanecem disponíveis via {@link #coluna(int)}.
+ * A estatística de um campo inteiro, empregada para descartar lotes
+ * em varreduras (veja {@link LeitorLotes}), é obtida por
+ * {@link #estatistica(int)}.
+ *
+ * <p>A serialização do lote, produzida por {@link #array()}, é
+ * formada pela quantidade de registros ({@code int}), pelo
+ * dicionário, pela quantidade de colunas ({@code int}), por cada
+ * coluna (ordem do campo, {@code int}, seguida da coluna codificada),
+ * pela quantidade de bytes da sequência de registros ({@code int}) e,
+ * por último, a própria sequência, da qual os campos colunares foram
+ * removidos.
+ */
+public class Lote {
+
+    private final Dicionario dicionario;
+
+    /**
+     * Sequência de registros do lote.
+     */
+    private byte[] dados;
+
+    /**
+     * Quantidade de bytes ocupados da sequência de registros.
+     */
+    private int usados;
+
+    /**
+     * Posição inicial de cada registro na sequência.
+     */
+    private int[] inicios;
+
+    /**
+     * Quantidade de registros do lote.
+     */
+    private int quantidade;
+
+    /**
+     * Ordens dos campos armazenados em colunas, em ordem crescente.
+     */
+    private int[] colunas = new int[0];
+
+    /**
+     * Valores decodificados de cada coluna (mesma ordem de
+     * {@link #colunas}), disponíveis após a desserialização.
+     */
+    private long[][] decodificadas;
+
+    /**
+     * Cria lote vazio, com dicionário vazio.
+     */
+    public Lote() {
+        this(new Dicionario(), new byte[1024], 0);
+    }
+
+    private Lote(Dicionario dicionario, byte[] dados, int usados) {
+        this.dicionario = dicionario;
+        this.dados = dados;
+        this.usados = usados;
+        this.inicios = new int[16];
+    }
+
+    /**
+     * Recupera o dicionário compartilhado pelos registros do lote.
+     *
+     * @return Dicionário do lote.
+     */
+    public Dicionario dicionario() {
+        return dicionario;
+    }
+
+    /**
+     * Acrescenta registro ao lote.
+     *
+     * @param registro Registro serializado, conforme {@link Seed#array()}.
+     */
+    public void adiciona(byte[] registro) {
+        if (usados + registro.length > dados.length) {
+            dados = Arrays.copyOf(dados,
+                    Math.max(usados + registro.length, 2 * dados.length));
+        }
+
+        System.arraycopy(registro, 0, dados, usados, registro.length);
+        registraInicio(usados);
+        usados = usados + registro.length;
+        decodificadas = null;
+    }
+
+    /**
+     * Indica que o campo de ordem indicada deve ser armazenado em
+     * coluna, na serialização do lote. O campo deve ser de um tipo
+     * inteiro, de tamanho fixo, e estar presente em todos os
+     * registros.
+     *
+     * @param ordem Ordem do campo nos registros do lote.
+     */
+    public void colunar(int ordem) {
+        if (Arrays.binarySearch(colunas, ordem) >= 0) {
+            return;
+        }
+
+        colunas = Arrays.copyOf(colunas, colunas.length + 1);
+        colunas[colunas.length - 1] = ordem;
+        Arrays.sort(colunas);
+        decodificadas = null;
+    }
+
+    /**
+     * Recupera os valores de um campo inteiro de todos os
+     * registros do lote.
+     *
+     * @param ordem Ordem do campo nos registros do lote.
+     * @return Vetor com o valor do campo de cada registro, na
+     * ordem dos registros.
+     *
+     * @throws IllegalArgumentException Se o campo não é inteiro ou
+     * está ausente em algum registro.
+     */
+    public long[] coluna(int ordem) {
+        int indice = Arrays.binarySearch(colunas, ordem);
+        if (decodificadas != null && indice >= 0) {
+            return decodificadas[indice].clone();
+        }
+
+        ByteBuffer sequencia = ByteBuffer.wrap(dados, 0, usados);
+        long[] valores = new long[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            valores[i] = valor(sequencia, inicios[i], ordem);
+        }
+
+        return valores;
+    }
+
+    /**
+     * Produz a estatística (menor e maior valores e ausências) de
+     * um campo inteiro dos registros do lote.
+     *
+     * @param ordem Ordem do campo nos registros do lote.
+     * @return Estatística do campo.
+     *
+     * @throws IllegalArgumentException Se o campo não é inteiro.
+     */
+    public Estatistica estatistica(int ordem) {
+        ByteBuffer sequencia = ByteBuffer.wrap(dados, 0, usados);
+        long minimo = Long.MAX_VALUE;
+        long maximo = Long.MIN_VALUE;
+        int ausentes = 0;
+        for (int i = 0; i < quantidade; i++) {
+            if (!Seed.presente(sequencia, inicios[i], ordem)) {
+                ausentes++;
+                continue;
+            }
+
+            long v = valor(sequencia, inicios[i], ordem);
+            minimo = Math.min(minimo, v);
+            maximo = Math.max(maximo, v);
+        }
+
+        return new Estatistica(ordem, minimo, maximo, ausentes, quantidade);
+    }
+
+    /**
+     * Verifica se o campo inteiro do registro possui valor no
+     * intervalo indicado (inclusive).
+     */
+    boolean contem(int indice, int ordem, long de, long ate) {
+        ByteBuffer sequencia = ByteBuffer.wrap(dados, 0, usados);
+        int inicio = inicio(indice);
+        if (!Seed.presente(sequencia, inicio, ordem)) {
+            return false;
+        }
+
+        long v = valor(sequencia, inicio, ordem);
+        return v >= de && v <= ate;
+    }
+
+    /**
+     * Quantidade de registros do lote.
+     *
+     * @return Quantidade de registros do lote.
+     */
+    public int quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Recupera registro do lote, sem cópia.
+     *
+     * @param indice Índice do registro, de 0 até
+     *               {@link #quantidade()} - 1.
+     * @return Instância que recupera valores do registro.
+     */
+    public Seed registro(int indice) {
+        return Seed.desserializa(ByteBuffer.wrap(dados, 0, usados), inicio(indice));
+    }
+
+    /**
+     * Posição inicial do registro na sequência de registros do lote.
+     *
+     * @param indice Índice do registro, de 0 até
+     *               {@link #quantidade()} - 1.
+     * @return Posição inicial do registro.
+     */
+    public int inicio(int indice) {
+        if (indice < 0 || indice >= quantidade) {
+            throw new IndexOutOfBoundsException("registro: " + indice);
+        }
+
+        return inicios[indice];
+    }
+
+    /**
+     * Produz a serialização do lote.
+     *
+     * @return Vetor de bytes que contém o lote.
+     *
+     * @see #desserializa(byte[])
+     */
+    public byte[] array() {
+        ByteBuffer sequencia = ByteBuffer.wrap(dados, 0, usados);
+
+        byte[][] codificadas = new byte[colunas.length][];
+        int bytesColunas = 0;
+        int removidos = 0;
+        for (int c = 0; c < colunas.length; c++) {
+            codificadas[c] = ColunaNumerica.codifica(coluna(colunas[c]), quantidade);
+            bytesColunas = bytesColunas + 4 + codificadas[c].length;
+            for (int i = 0; i < quantidade; i++) {
+                removidos = removidos + largura(sequencia, inicios[i], colunas[c]);
+            }
+        }
+
+        ByteBuffer lote = ByteBuffer.allocate(4 + dicionario.tamanho()
+                + 4 + bytesColunas + 4 + usados - removidos);
+        lote.putInt(quantidade);
+        dicionario.escreve(lote);
+
+        lote.putInt(colunas.length);
+        for (int c = 0; c < colunas.length; c++) {
+            lote.putInt(colunas[c]);
+            lote.put(codificadas[c]);
+        }
+
+        lote.putInt(usados - removidos);
+        for (int i = 0; i < quantidade; i++) {
+            int fim = i + 1 < quantidade ? inicios[i + 1] : usados;
+            int copiado = inicios[i];
+            for (int ordem : colunas) {
+                int campo = Seed.offset(sequencia, inicios[i], ordem);
+                lote.put(dados, copiado, campo - copiado);
+                copiado = campo + largura(sequencia, inicios[i], ordem);
+            }
+
+            lote.put(dados, copiado, fim - copiado);
+        }
+
+        return lote.array();
+    }
+
+    /**
+     * Recupera lote previamente serializado.
+     *
+     * @param lote Vetor produzido por {@link #array()}.
+     * @return Lote recuperado.
+     */
+    public static Lote desserializa(byte[] lote) {
+        ByteBuffer bytes = ByteBuffer.wrap(lote);
+        int quantidade = bytes.getInt(0);
+        Dicionario dicionario = Dicionario.desserializa(bytes, 4);
+
+        int posicao = 4 + dicionario.tamanho();
+        int[] colunas = new int[bytes.getInt(posicao)];
+        long[][] decodificadas = new long[colunas.length][quantidade];
+        posicao = posicao + 4;
+        for (int c = 0; c < colunas.length; c++) {
+            colunas[c] = bytes.getInt(posicao);
+            ColunaNumerica.decodifica(bytes, posicao + 4, decodificadas[c]);
+            posicao = posicao + 4 + ColunaNumerica.tamanho(bytes, posicao + 4);
+        }
+
+        int tamanho = bytes.getInt(posicao);
+        posicao = posicao + 4;
+
+        if (colunas.length == 0) {
+            byte[] dados = Arrays.copyOfRange(lote, posicao, posicao + tamanho);
+            Lote l = new Lote(dicionario, dados, tamanho);
+            ByteBuffer sequencia = ByteBuffer.wrap(dados);
+            int inicio = 0;
+            for (int i = 0; i < quantidade; i++) {
+                l.registraInicio(inicio);
+                inicio = inicio + Seed.tamanhoRegistro(sequencia, inicio);
+            }
+
+            return l;
+        }
+
+        return restabelece(bytes, posicao, quantidade, dicionario,
+                colunas, decodificadas);
+    }
+
+    /**
+     * Restabelece os registros dos quais os campos colunares foram
+     * removidos. Cada registro é copiado e, na sequência, os valores
+     * dos campos colunares são inseridos, em ordem crescente de
+     * campos, nas posições correspondentes.
+     */
+    private static Lote restabelece(ByteBuffer bytes, int posicao, int quantidade,
+                                    Dicionario dicionario, int[] colunas,
+                                    long[][] decodificadas) {
+        // Tamanho da sequência restabelecida
+        int usados = 0;
+        int origem = posicao;
+        int[] larguras = new int[colunas.length];
+        for (int i = 0; i < quantidade; i++) {
+            int inseridos = 0;
+            for (int c = 0; c < colunas.length; c++) {
+                larguras[c] = Seed.tamanhoDoTipo(Seed.tipo(bytes, origem, colunas[c]));
+                inseridos = inseridos + larguras[c];
+            }
+
+            int tamanho = tamanhoSemColunas(bytes, origem, colunas, inseridos);
+            usados = usados + tamanho + inseridos;
+            origem = origem + tamanho;
+        }
+
+        byte[] dados = new byte[usados];
+        ByteBuffer sequencia = ByteBuffer.wrap(dados);
+        Lote l = new Lote(dicionario, dados, usados);
+
+        origem = posicao;
+        int destino = 0;
+        for (int i = 0; i < quantidade; i++) {
+            int inseridos = 0;
+            for (int c = 0; c < colunas.length; c++) {
+                larguras[c] = Seed.tamanhoDoTipo(Seed.tipo(bytes, origem, colunas[c]));
+                inseridos = inseridos + larguras[c];
+            }
+
+            int tamanho = tamanhoSemColunas(bytes, origem, colunas, inseridos);
+            bytes.position(origem);
+            bytes.get(dados, destino, tamanho);
+
+            int fim = destino + tamanho;
+            for (int c = 0; c < colunas.length; c++) {
+                int campo = Seed.offset(sequencia, destino, colunas[c]);
+                System.arraycopy(dados, campo, dados, campo + larguras[c], fim - campo);
+                defineValor(sequencia, campo, Seed.tipo(sequencia, destino, colunas[c]),
+                        decodificadas[c][i]);
+                fim = fim + larguras[c];
+            }
+
+            l.registraInicio(destino);
+            origem = origem + tamanho;
+            destino = fim;
+        }
+
+        l.colunas = colunas;
+        l.decodificadas = decodificadas;
+        return l;
+    }
+
+    /**
+     * Tamanho de um registro do qual os campos colunares foram
+     * removidos.
+     */
+    private static int tamanhoSemColunas(ByteBuffer bytes, int inicio,
+                                         int[] colunas, int removidos) {
+        if (Seed.largo(bytes, inicio)) {
+            // Tabela de posições preservada
+            return Seed.tamanhoRegistro(bytes, inicio) - removidos;
+        }
+
+        int posicao = Seed.offset(bytes, inicio, 0);
+        int quantidade = Seed.quantidade(bytes, inicio);
+        int proxima = 0;
+        for (int i = 0; i < quantidade; i++) {
+            if (proxima < colunas.length && colunas[proxima] == i) {
+                proxima++;
+                continue;
+            }
+
+            if (!Seed.presente(bytes, inicio, i)) {
+                continue;
+            }
+
+            byte tipo = Seed.tipo(bytes, inicio, i);
+            if (tipo == Seed.STRING || tipo == Seed.VETOR) {
+                posicao = posicao + 4 + bytes.getInt(posicao);
+            } else {
+                posicao = posicao + Seed.tamanhoDoTipo(tipo);
+            }
+        }
+
+        return posicao - inicio;
+    }
+
+    /**
+     * Quantidade de bytes do campo inteiro (colunar) do registro.
+     */
+    private static int largura(ByteBuffer sequencia, int inicio, int ordem) {
+        byte tipo = Seed.tipo(sequencia, inicio, ordem);
+        if (tipo == Seed.FLOAT || tipo == Seed.DOUBLE || tipo == Seed.BOOLEAN
+                || tipo == Seed.STRING || tipo == Seed.VETOR) {
+            throw new IllegalArgumentException("campo não inteiro: " + ordem);
+        }
+
+        return Seed.tamanhoDoTipo(tipo);
+    }
+
+    /**
+     * Valor do campo inteiro do registro.
+     */
+    private static long valor(ByteBuffer sequencia, int inicio, int ordem) {
+        if (!Seed.presente(sequencia, inicio, ordem)) {
+            throw new IllegalArgumentException("campo ausente: " + ordem);
+        }
+
+        int campo = Seed.offset(sequencia, inicio, ordem);
+        switch (Seed.tipo(sequencia, inicio, ordem)) {
+            case Seed.BYTE:
+                return sequencia.get(campo);
+            case Seed.SHORT:
+                return sequencia.getShort(campo);
+            case Seed.CHAR:
+                return sequencia.getChar(campo);
+            case Seed.INT:
+                return sequencia.getInt(campo);
+            case Seed.LONG:
+                return sequencia.getLong(campo);
+            default:
+                throw new IllegalArgumentException("campo não inteiro: " + ordem);
+        }
+    }
+
+    /**
+     * Deposita o valor inteiro na posição indicada.
+     */
+    private static void defineValor(ByteBuffer sequencia, int campo,
+                                    byte tipo, long valor) {
+        switch (tipo) {
+            case Seed.BYTE:
+                sequencia.put(campo, (byte) valor);
+                break;
+            case Seed.SHORT:
+                sequencia.putShort(campo, (short) valor);
+                break;
+            case Seed.CHAR:
+                sequencia.putChar(campo, (char) valor);
+                break;
+            case Seed.INT:
+                sequencia.putInt(campo, (int) valor);
+                break;
+            default:
+                sequencia.putLong(campo, valor);
+        }
+    }
+
+    /**
+     * Acrescenta a posição inicial de um registro.
+     */
+    private void registraInicio(int inicio) {
+        if (quantidade == inicios.length) {
+            inicios = Arrays.copyOf(inicios, 2 * quantidade);
+        }
+
+        inicios[quantidade++] = inicio;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores do processo de serialização e desserialização.
+ *
+ * <p>A instrumentação é opcional e só é habilitada quando a
+ * propriedade de sistema {@value #PROPRIEDADE} é {@code true}.
+ * Nesse caso os contadores são expostos via JMX pelo nome
+ * {@value #NOME_JMX}. Os contadores são do tipo {@link LongAdder},
+ * o que reduz a contenção quando várias <i>threads</i> serializam
+ * registros simultaneamente.
+ *
+ * <p>Os pontos instrumentados em {@link Seed} são protegidos por
+ * {@link #HABILITADA}, constante avaliada uma única vez. Quando
+ * desabilitada, o compilador JIT elimina o código correspondente,
+ * ou seja, não há custo para o caminho crítico.
+ */
+public final class Metricas implements MetricasMBean {
+
+    /**
+     * Propriedade de sistema que habilita a instrumentação.
+     */
+    public static final String PROPRIEDADE = "seed.metricas";
+
+    /**
+     * Nome pelo qual os contadores são registrados via JMX.
+     */
+    public static final String NOME_JMX =
+            "com.github.kyriosdata.seed:type=Metricas";
+
+    /**
+     * Indica se a instrumentação está habilitada.
+     */
+    public static final boolean HABILITADA = Boolean.getBoolean(PROPRIEDADE);
+
+    private static final LongAdder serializados = new LongAdder();
+    private static final LongAdder desserializados = new LongAdder();
+    private static final LongAdder bytesSerializados = new LongAdder();
+    private static final LongAdder passosOffset = new LongAdder();
+    private static final LongAdder alocacoes = new LongAdder();
+    private static final LongAdder bytesAlocados = new LongAdder();
+    private static final LongAdder strings = new LongAdder();
+    private static final LongAdder bytesDecodificados = new LongAdder();
+    private static final LongAdder crescimentos = new LongAdder();
+
+    /**
+     * Única instância, a registrada via JMX.
+     */
+    private static final Metricas INSTANCIA = new Metricas();
+
+    static {
+        if (HABILITADA) {
+            registra();
+        }
+    }
+
+    /**
+     * Evita criação de instância além daquela registrada via JMX.
+     */
+    private Metricas() {
+    }
+
+    /**
+     * Recupera a instância que dá acesso aos contadores.
+     *
+     * @return Instância que dá acesso aos contadores.
+     */
+    public static Metricas instancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Registra os contadores no servidor JMX da plataforma.
+     */
+    private static void registra() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName nome = new ObjectName(NOME_JMX);
+            if (!servidor.isRegistered(nome)) {
+                servidor.registerMBean(INSTANCIA, nome);
+            }
+        } catch (JMException exp) {
+            throw new IllegalStateException("registro JMX falhou", exp);
+        }
+    }
+
+    static void registroSerializado(int bytes) {
+        serializados.increment();
+        bytesSerializados.add(bytes);
+    }
+
+    static void registroDesserializado() {
+        desserializados.increment();
+    }
+
+    static void passosOffset(int passos) {
+        passosOffset.add(passos);
+    }
+
+    static void alocacao(int bytes) {
+        alocacoes.increment();
+        bytesAlocados.add(bytes);
+    }
+
+    static void crescimento(int bytes) {
+        crescimentos.increment();
+        alocacao(bytes);
+    }
+
+    static void stringDecodificada(int bytes) {
+        strings.increment();
+        bytesDecodificados.add(bytes);
+    }
+
+    @Override
+    public long getRegistrosSerializados() {
+        return serializados.sum();
+    }
+
+    @Override
+    public long getRegistrosDesserializados() {
+        return desserializados.sum();
+    }
+
+    @Override
+    public long getBytesSerializados() {
+        return bytesSerializados.sum();
+    }
+
+    @Override
+    public long getPassosOffset() {
+        return passosOffset.sum();
+    }
+
+    @Override
+    public long getAlocacoes() {
+        return alocacoes.sum();
+    }
+
+    @Override
+    public long getBytesAlocados() {
+        return bytesAlocados.sum();
+    }
+
+    @Override
+    public long getStringsDecodificadas() {
+        return strings.sum();
+    }
+
+    @Override
+    public long getBytesDecodificados() {
+        return bytesDecodificados.sum();
+    }
+
+    @Override
+    public long getCrescimentos() {
+        return crescimentos.sum();
+    }
+
+    @Override
+    public void reinicia() {
+        serializados.reset();
+        desserializados.reset();
+        bytesSerializados.reset();
+        passosOffset.reset();
+        alocacoes.reset();
+        bytesAlocados.reset();
+        strings.reset();
+        bytesDecodificados.reset();
+        crescimentos.reset();
+    }
+}
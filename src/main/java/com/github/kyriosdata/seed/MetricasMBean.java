@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+/**
+ * Interface de gerenciamento (JMX) dos contadores mantidos
+ * por {@link Metricas}.
+ *
+ * @see Metricas
+ */
+public interface MetricasMBean {
+
+    /**
+     * Quantidade de registros serializados, ou seja, de chamadas
+     * a {@link Seed#array()}.
+     *
+     * @return Total de registros serializados.
+     */
+    long getRegistrosSerializados();
+
+    /**
+     * Quantidade de registros desserializados, ou seja, de
+     * instâncias obtidas por {@link Seed#desserializa(byte[], int)}.
+     *
+     * @return Total de registros desserializados.
+     */
+    long getRegistrosDesserializados();
+
+    /**
+     * Quantidade de bytes produzidos por {@link Seed#array()}.
+     *
+     * @return Total de bytes serializados.
+     */
+    long getBytesSerializados();
+
+    /**
+     * Quantidade de campos percorridos por {@link Seed#offset(int)}
+     * para localizar o início de um campo.
+     *
+     * @return Total de passos no cálculo de deslocamentos.
+     */
+    long getPassosOffset();
+
+    /**
+     * Quantidade de vetores de bytes alocados durante a
+     * serialização e a desserialização (cópias, empacotamentos
+     * e desempacotamentos).
+     *
+     * @return Total de alocações.
+     */
+    long getAlocacoes();
+
+    /**
+     * Quantidade de bytes alocados pelas operações contabilizadas
+     * em {@link #getAlocacoes()}.
+     *
+     * @return Total de bytes alocados.
+     */
+    long getBytesAlocados();
+
+    /**
+     * Quantidade de sequências de caracteres decodificadas (UTF-8).
+     *
+     * @return Total de sequências de caracteres decodificadas.
+     */
+    long getStringsDecodificadas();
+
+    /**
+     * Quantidade de bytes decodificados (UTF-8) para a produção de
+     * sequências de caracteres.
+     *
+     * @return Total de bytes decodificados.
+     */
+    long getBytesDecodificados();
+
+    /**
+     * Quantidade de ampliações do buffer no qual um registro
+     * é montado durante a serialização.
+     *
+     * @return Total de ampliações de buffer.
+     */
+    long getCrescimentos();
+
+    /**
+     * Zera todos os contadores.
+     */
+    void reinicia();
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Monta registros cujos campos são definidos em qualquer ordem.
+ *
+ * <p>Ao contrário de {@link Seed#serializa(byte[])}, que exige a
+ * definição dos campos na ordem da metainformação, aqui cada valor
+ * é guardado em uma tabela com uma entrada por campo. Valores de
+ * tipos primitivos são mantidos na própria entrada; sequências de
+ * caracteres (UTF-8) e vetores de bytes são copiados para uma área
+ * de rascunho, e a entrada guarda a posição e o tamanho
+ * correspondentes. O registro é montado em uma única passagem por
+ * {@link #array()} ou diretamente em um buffer fornecido, por
+ * {@link #escreve(ByteBuffer)}, e o resultado é idêntico àquele
+ * produzido por {@link Seed}, ou seja, pode ser lido por
+ * {@link Seed#desserializa(byte[])}. No formato esparso
+ * ({@link #serializaEsparso(byte[])}), campos não definidos são
+ * ausentes; nos demais, todos os campos devem ser definidos. Cada
+ * método {@code define*} aceita apenas campos do tipo
+ * correspondente.
+ *
+ * <p>Uma instância pode ser reutilizada para vários registros com a
+ * mesma metainformação, por meio de {@link #reinicia()}, sem novas
+ * alocações. Um campo pode ser definido mais de uma vez, prevalece o
+ * último valor. Nesse caso, os bytes anteriores de um campo de
+ * tamanho variável permanecem na área de rascunho até
+ * {@link #reinicia()}.
+ */
+public final class Montador {
+
+    private final byte[] meta;
+    private final byte[] tipos;
+
+    /**
+     * Segundo byte do registro nos formatos largo e esparso
+     * ({@link Seed#LARGO} ou {@link Seed#ESPARSO}), ou zero no
+     * formato compacto.
+     */
+    private final byte formato;
+
+    /**
+     * Posição do primeiro campo, a partir do início do registro.
+     */
+    private final int cabecalho;
+
+    /**
+     * Valor de cada campo, ou posição (32 bits mais significativos)
+     * e tamanho dos bytes na área de rascunho.
+     */
+    private final long[] valores;
+    private final boolean[] definidos;
+
+    private byte[] rascunho = new byte[64];
+    private int usados;
+
+    private Montador(byte[] meta, byte[] tipos, byte formato, int cabecalho) {
+        this.meta = meta;
+        this.tipos = tipos;
+        this.formato = formato;
+        this.cabecalho = cabecalho;
+        this.valores = new long[tipos.length];
+        this.definidos = new boolean[tipos.length];
+    }
+
+    /**
+     * Cria montador de registros com a metainformação indicada,
+     * conforme {@link Seed#serializa(byte[])}.
+     *
+     * @param meta Metainformação dos registros a serem montados.
+     * @return Montador de registros.
+     */
+    public static Montador serializa(byte[] meta) {
+        byte[] tipos = Arrays.copyOfRange(meta, 2, 2 + meta[1]);
+        return new Montador(meta.clone(), tipos, (byte) 0, 2 + tipos.length);
+    }
+
+    /**
+     * Cria montador de registros no formato largo, conforme
+     * {@link Seed#serializaLargo(byte[])}.
+     *
+     * @param tipos Tipo de cada um dos campos do registro.
+     * @return Montador de registros.
+     */
+    public static Montador serializaLargo(byte[] tipos) {
+        int cabecalho = Seed.POS_TIPOS_LARGO + tipos.length + 4 * (tipos.length + 1);
+        return new Montador(null, tipos.clone(), Seed.LARGO, cabecalho);
+    }
+
+    /**
+     * Cria montador de registros no formato esparso, conforme
+     * {@link Seed#serializaEsparso(byte[])}. Campos não definidos
+     * são ausentes.
+     *
+     * @param tipos Tipo de cada um dos campos do registro.
+     * @return Montador de registros.
+     */
+    public static Montador serializaEsparso(byte[] tipos) {
+        int cabecalho = Seed.POS_TIPOS_LARGO + tipos.length + 8 * ((tipos.length + 63) >>> 6);
+        return new Montador(null, tipos.clone(), Seed.ESPARSO, cabecalho);
+    }
+
+    /**
+     * Descarta os valores definidos, para a montagem de
+     * outro registro.
+     */
+    public void reinicia() {
+        Arrays.fill(definidos, false);
+        usados = 0;
+    }
+
+    /**
+     * Define o valor lógico para o campo indicado.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineBoolean(int ordem, boolean valor) {
+        verifica(ordem, Seed.BOOLEAN);
+        define(ordem, valor ? 1 : 0);
+    }
+
+    /**
+     * Define o caractere para o campo indicado.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineChar(int ordem, char valor) {
+        verifica(ordem, Seed.CHAR);
+        define(ordem, valor);
+    }
+
+    /**
+     * Define o byte para o campo indicado.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineByte(int ordem, byte valor) {
+        verifica(ordem, Seed.BYTE);
+        define(ordem, valor);
+    }
+
+    /**
+     * Define o valor {@code short} para o campo indicado.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineShort(int ordem, short valor) {
+        verifica(ordem, Seed.SHORT);
+        define(ordem, valor);
+    }
+
+    /**
+     * Define o valor {@code int} para o campo indicado.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineInt(int ordem, int valor) {
+        verifica(ordem, Seed.INT);
+        define(ordem, valor);
+    }
+
+    /**
+     * Define o valor {@code long} para o campo indicado.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineLong(int ordem, long valor) {
+        verifica(ordem, Seed.LONG);
+        define(ordem, valor);
+    }
+
+    /**
+     * Define o valor {@code float} para o campo indicado.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineFloat(int ordem, float valor) {
+        verifica(ordem, Seed.FLOAT);
+        define(ordem, Float.floatToRawIntBits(valor));
+    }
+
+    /**
+     * Define o valor {@code double} para o campo indicado.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineDouble(int ordem, double valor) {
+        verifica(ordem, Seed.DOUBLE);
+        define(ordem, Double.doubleToRawLongBits(valor));
+    }
+
+    /**
+     * Define o valor {@code String}, cujos bytes (UTF-8) são
+     * depositados na área de rascunho, sem cópias intermediárias.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineString(int ordem, String valor) {
+        verifica(ordem, Seed.STRING);
+
+        // No máximo três bytes por char (pares substitutos: quatro
+        // bytes para dois chars)
+        int comprimento = valor.length();
+        garante(usados + 3 * comprimento);
+
+        int inicio = usados;
+        int p = usados;
+        byte[] r = rascunho;
+        for (int i = 0; i < comprimento; i++) {
+            char c = valor.charAt(i);
+            if (c < 0x80) {
+                r[p++] = (byte) c;
+            } else if (c < 0x800) {
+                r[p++] = (byte) (0xC0 | (c >> 6));
+                r[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                char baixo = i + 1 < comprimento ? valor.charAt(i + 1) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(baixo)) {
+                    int cp = Character.toCodePoint(c, baixo);
+                    r[p++] = (byte) (0xF0 | (cp >> 18));
+                    r[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    r[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    r[p++] = (byte) (0x80 | (cp & 0x3F));
+                    i++;
+                } else {
+                    // Substituto isolado, conforme String.getBytes
+                    r[p++] = '?';
+                }
+            } else {
+                r[p++] = (byte) (0xE0 | (c >> 12));
+                r[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                r[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        usados = p;
+        define(ordem, ((long) inicio << 32) | (p - inicio));
+    }
+
+    /**
+     * Define o vetor de bytes, copiado para a área de rascunho.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     */
+    public void defineByteArray(int ordem, byte[] valor) {
+        verifica(ordem, Seed.VETOR);
+        garante(usados + valor.length);
+
+        int inicio = usados;
+        System.arraycopy(valor, 0, rascunho, inicio, valor.length);
+        usados = usados + valor.length;
+        define(ordem, ((long) inicio << 32) | valor.length);
+    }
+
+    /**
+     * Identifica o tamanho em bytes do registro montado.
+     *
+     * @return Quantidade de bytes do registro.
+     *
+     * @throws IllegalStateException Se algum campo não foi definido,
+     * exceto no formato esparso.
+     */
+    public int tamanho() {
+        int tamanho = cabecalho;
+        for (int i = 0; i < tipos.length; i++) {
+            tamanho = tamanho + ocupados(i);
+        }
+
+        return tamanho;
+    }
+
+    /**
+     * Produz o registro montado.
+     *
+     * @return Vetor de bytes que contém o registro.
+     *
+     * @throws IllegalStateException Se algum campo não foi definido.
+     */
+    public byte[] array() {
+        byte[] registro = new byte[tamanho()];
+        escreve(ByteBuffer.wrap(registro));
+
+        if (Metricas.HABILITADA) {
+            Metricas.alocacao(registro.length);
+        }
+
+        return registro;
+    }
+
+    /**
+     * Deposita o registro montado no buffer, a partir da posição
+     * corrente, que é avançada até o fim do registro.
+     *
+     * @param destino Buffer que recebe o registro.
+     * @return Quantidade de bytes depositados.
+     *
+     * @throws BufferOverflowException Se não há espaço suficiente
+     * no buffer, que não é alterado.
+     * @throws IllegalStateException Se algum campo não foi definido.
+     */
+    public int escreve(ByteBuffer destino) {
+        int tamanho = tamanho();
+        if (destino.remaining() < tamanho) {
+            throw new BufferOverflowException();
+        }
+
+        ByteBuffer alvo = destino.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int inicio = alvo.position();
+
+        boolean largo = formato == Seed.LARGO;
+        int tabela = inicio + Seed.POS_TIPOS_LARGO + tipos.length;
+        if (formato == 0) {
+            alvo.put(meta, 0, cabecalho);
+        } else {
+            alvo.put((byte) 0);
+            alvo.put(formato);
+            alvo.putInt(tipos.length);
+            alvo.put(tipos);
+            if (formato == Seed.ESPARSO) {
+                escreveMapa(alvo, tabela);
+            }
+
+            alvo.position(inicio + cabecalho);
+        }
+
+        for (int i = 0; i < tipos.length; i++) {
+            if (largo) {
+                alvo.putInt(tabela + 4 * i, alvo.position() - inicio);
+            }
+
+            if (!definidos[i]) {
+                // Apenas no formato esparso (veja tamanho())
+                continue;
+            }
+
+            long v = valores[i];
+            switch (tipos[i]) {
+                case Seed.BYTE:
+                case Seed.BOOLEAN:
+                    alvo.put((byte) v);
+                    break;
+                case Seed.SHORT:
+                case Seed.CHAR:
+                    alvo.putShort((short) v);
+                    break;
+                case Seed.INT:
+                case Seed.FLOAT:
+                    alvo.putInt((int) v);
+                    break;
+                case Seed.LONG:
+                case Seed.DOUBLE:
+                    alvo.putLong(v);
+                    break;
+                default:
+                    int bytes = (int) v;
+                    alvo.putInt(bytes);
+                    alvo.put(rascunho, (int) (v >>> 32), bytes);
+            }
+        }
+
+        if (largo) {
+            alvo.putInt(tabela + 4 * tipos.length, alvo.position() - inicio);
+        }
+
+        destino.position(alvo.position());
+
+        if (Metricas.HABILITADA) {
+            Metricas.registroSerializado(tamanho);
+        }
+
+        return tamanho;
+    }
+
+    /**
+     * Deposita o mapa de presença dos campos, a partir da
+     * posição indicada.
+     */
+    private void escreveMapa(ByteBuffer alvo, int mapa) {
+        long palavra = 0;
+        for (int i = 0; i < tipos.length; i++) {
+            if (definidos[i]) {
+                palavra = palavra | (1L << i);
+            }
+
+            if ((i & 63) == 63 || i == tipos.length - 1) {
+                alvo.putLong(mapa + 8 * (i >>> 6), palavra);
+                palavra = 0;
+            }
+        }
+    }
+
+    private void define(int ordem, long valor) {
+        valores[ordem] = valor;
+        definidos[ordem] = true;
+    }
+
+    /**
+     * Verifica se o campo é do tipo indicado.
+     */
+    private void verifica(int ordem, byte tipo) {
+        if (tipos[ordem] != tipo) {
+            throw new IllegalArgumentException("campo " + ordem
+                    + " é do tipo " + tipos[ordem] + ", não " + tipo);
+        }
+    }
+
+    /**
+     * Quantidade de bytes ocupada pelo campo no registro.
+     */
+    private int ocupados(int ordem) {
+        if (!definidos[ordem]) {
+            if (formato == Seed.ESPARSO) {
+                return 0;
+            }
+
+            throw new IllegalStateException("campo não definido: " + ordem);
+        }
+
+        byte tipo = tipos[ordem];
+        return tipo == Seed.STRING || tipo == Seed.VETOR
+                ? 4 + (int) valores[ordem]
+                : Seed.tamanhoDoTipo(tipo);
+    }
+
+    /**
+     * Amplia a área de rascunho, caso necessário.
+     */
+    private void garante(int capacidade) {
+        if (capacidade > rascunho.length) {
+            rascunho = Arrays.copyOf(rascunho, Math.max(capacidade, 2 * rascunho.length));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ordenação externa (<i>merge sort</i>) de arquivos de registros
+ * maiores que a memória disponível.
+ *
+ * <p>Um arquivo de registros é uma sequência de registros conforme
+ * {@link LeitorRegistros}. A ordenação é feita em duas etapas. Na
+ * primeira, o arquivo é lido em porções limitadas pela memória
+ * indicada; cada porção é ordenada e depositada em um arquivo
+ * temporário (<i>run</i>). Na segunda, os arquivos temporários são
+ * intercalados, no máximo {@link #getMaximoIntercalados()} por vez,
+ * até restar apenas um, o arquivo ordenado.
+ *
+ * <p>A ordem é definida por um {@link ComparadorRegistros}, ou
+ * seja, os registros não são desserializados.
+ */
+public class OrdenacaoExterna {
+
+    /**
+     * Estimativa do custo, em bytes, de manter um vetor em memória
+     * além dos bytes propriamente ditos (cabeçalho e referência).
+     */
+    private static final int CUSTO_POR_REGISTRO = 32;
+
+    /**
+     * Tamanho dos buffers de leitura e escrita de arquivos.
+     */
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private final ComparadorRegistros comparador;
+    private final long memoria;
+    private final Path temporarios;
+    private int maximoIntercalados = 64;
+
+    /**
+     * Cria serviço de ordenação.
+     *
+     * @param comparador Define a ordem dos registros.
+     * @param memoria Quantidade máxima de bytes de registros mantidos
+     *                em memória durante a criação de cada <i>run</i>.
+     * @param temporarios Diretório no qual arquivos temporários são
+     *                    criados (e removidos ao final).
+     */
+    public OrdenacaoExterna(ComparadorRegistros comparador,
+                            long memoria, Path temporarios) {
+        if (memoria <= 0) {
+            throw new IllegalArgumentException("memória deve ser positiva");
+        }
+
+        this.comparador = comparador;
+        this.memoria = memoria;
+        this.temporarios = temporarios;
+    }
+
+    /**
+     * Quantidade máxima de arquivos intercalados simultaneamente.
+     *
+     * @return Quantidade máxima de arquivos abertos na intercalação.
+     */
+    public int getMaximoIntercalados() {
+        return maximoIntercalados;
+    }
+
+    /**
+     * Define a quantidade máxima de arquivos intercalados
+     * simultaneamente.
+     *
+     * @param maximo Quantidade máxima, pelo menos 2.
+     */
+    public void setMaximoIntercalados(int maximo) {
+        if (maximo < 2) {
+            throw new IllegalArgumentException("mínimo de 2 arquivos");
+        }
+
+        maximoIntercalados = maximo;
+    }
+
+    /**
+     * Ordena os registros do arquivo de entrada.
+     *
+     * @param entrada Arquivo de registros a ser ordenado.
+     * @param saida Arquivo a ser criado (ou sobrescrito) com os
+     *              registros da entrada, ordenados.
+     *
+     * @throws IOException Em caso de falha de leitura ou escrita.
+     */
+    public void ordena(Path entrada, Path saida) throws IOException {
+        List<Path> criados = new ArrayList<>();
+        try {
+            List<Path> runs = criaRuns(entrada, criados);
+
+            while (runs.size() > maximoIntercalados) {
+                List<Path> proximos = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += maximoIntercalados) {
+                    int fim = Math.min(runs.size(), i + maximoIntercalados);
+                    List<Path> grupo = runs.subList(i, fim);
+                    Path run = criaTemporario(criados);
+                    proximos.add(run);
+                    intercala(grupo, run);
+
+                    // Porções já intercaladas não são mais necessárias
+                    for (Path intercalado : grupo) {
+                        Files.delete(intercalado);
+                    }
+                    criados.removeAll(grupo);
+                }
+
+                runs = proximos;
+            }
+
+            intercala(runs, saida);
+        } finally {
+            // Restantes: porções da última intercalação ou após falha
+            for (Path arquivo : criados) {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+    }
+
+    /**
+     * Divide a entrada em porções ordenadas, cada uma em um
+     * arquivo temporário.
+     */
+    private List<Path> criaRuns(Path entrada, List<Path> criados)
+            throws IOException {
+        List<Path> runs = new ArrayList<>();
+        List<byte[]> porcao = new ArrayList<>();
+        long ocupados = 0;
+
+        try (LeitorRegistros leitor = leitor(entrada)) {
+            byte[] registro;
+            while ((registro = leitor.proximo()) != null) {
+                porcao.add(registro);
+                ocupados = ocupados + registro.length + CUSTO_POR_REGISTRO;
+
+                if (ocupados >= memoria) {
+                    runs.add(escreveRun(porcao, criados));
+                    porcao.clear();
+                    ocupados = 0;
+                }
+            }
+        }
+
+        if (!porcao.isEmpty() || runs.isEmpty()) {
+            runs.add(escreveRun(porcao, criados));
+        }
+
+        return runs;
+    }
+
+    /**
+     * Ordena os registros em memória e os deposita em um
+     * arquivo temporário.
+     */
+    private Path escreveRun(List<byte[]> porcao, List<Path> criados)
+            throws IOException {
+        byte[][] registros = porcao.toArray(new byte[porcao.size()][]);
+        Arrays.sort(registros, comparador);
+
+        Path run = criaTemporario(criados);
+        try (OutputStream os = escritor(run)) {
+            for (byte[] registro : registros) {
+                os.write(registro);
+            }
+        }
+
+        return run;
+    }
+
+    /**
+     * Intercala os arquivos ordenados em um único arquivo.
+     */
+    private void intercala(List<Path> origens, Path destino) throws IOException {
+        List<LeitorRegistros> leitores = new ArrayList<>();
+        PriorityQueue<Cabeca> fila = new PriorityQueue<>(
+                Math.max(1, origens.size()),
+                (x, y) -> {
+                    int r = comparador.compare(x.registro, y.registro);
+                    return r != 0 ? r : Integer.compare(x.origem, y.origem);
+                });
+
+        try (OutputStream os = escritor(destino)) {
+            for (Path origem : origens) {
+                LeitorRegistros leitor = leitor(origem);
+                leitores.add(leitor);
+                byte[] registro = leitor.proximo();
+                if (registro != null) {
+                    fila.add(new Cabeca(leitores.size() - 1, registro));
+                }
+            }
+
+            while (!fila.isEmpty()) {
+                Cabeca menor = fila.poll();
+                os.write(menor.registro);
+
+                byte[] proximo = leitores.get(menor.origem).proximo();
+                if (proximo != null) {
+                    menor.registro = proximo;
+                    fila.add(menor);
+                }
+            }
+        } finally {
+            for (LeitorRegistros leitor : leitores) {
+                leitor.close();
+            }
+        }
+    }
+
+    /**
+     * Cria arquivo temporário, registrado para remoção ao final.
+     */
+    private Path criaTemporario(List<Path> criados) throws IOException {
+        Path arquivo = Files.createTempFile(temporarios, "seed-run-", ".tmp");
+        criados.add(arquivo);
+        return arquivo;
+    }
+
+    private static LeitorRegistros leitor(Path arquivo) throws IOException {
+        return new LeitorRegistros(new BufferedInputStream(
+                Files.newInputStream(arquivo), TAMANHO_BUFFER));
+    }
+
+    private static OutputStream escritor(Path arquivo) throws IOException {
+        return new BufferedOutputStream(
+                Files.newOutputStream(arquivo), TAMANHO_BUFFER);
+    }
+
+    /**
+     * Registro corrente de um dos arquivos intercalados. A origem
+     * desempata registros iguais, o que torna a ordenação estável.
+     */
+    private static final class Cabeca {
+        private final int origem;
+        private byte[] registro;
+
+        Cabeca(int origem, byte[] registro) {
+            this.origem = origem;
+            this.registro = registro;
+        }
+    }
+}
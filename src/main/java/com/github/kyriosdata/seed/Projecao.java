@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Produz, a partir de um registro, outro registro formado apenas
+ * pelos campos selecionados, na ordem indicada, sem decodificá-los.
+ *
+ * <p>Os bytes de cada campo, incluídos o tamanho e o conteúdo de
+ * {@link Seed#STRING} e {@link Seed#VETOR}, são copiados diretamente
+ * do registro de origem, ou seja, nenhuma sequência de caracteres ou
+ * vetor é criado. Os campos de origem são localizados em uma única
+ * passagem, independente da quantidade de campos selecionados.
+ *
+ * <p>O registro produzido faz uso do formato compacto, do formato
+ * largo (mais de 127 campos selecionados) ou do formato esparso,
+ * caso algum campo selecionado esteja ausente no registro de origem
+ * (veja {@link Seed#serializaEsparso(byte[])}). Instâncias não
+ * possuem estado mutável e podem ser compartilhadas entre
+ * <i>threads</i>.
+ */
+public final class Projecao {
+
+    /**
+     * Ordens, no registro de origem, dos campos selecionados,
+     * na ordem em que são depositados no registro produzido.
+     */
+    private final int[] ordens;
+
+    /**
+     * Índices (em {@link #ordens}) dos campos selecionados, em
+     * ordem crescente de campos no registro de origem.
+     */
+    private final int[] crescente;
+
+    /**
+     * Cria projeção dos campos indicados.
+     *
+     * @param ordens Ordens dos campos no registro de origem, na
+     *               ordem em que devem ser depositados no registro
+     *               produzido. Um campo pode ser selecionado mais
+     *               de uma vez.
+     */
+    public Projecao(int... ordens) {
+        this.ordens = ordens.clone();
+
+        long[] pares = new long[ordens.length];
+        for (int j = 0; j < ordens.length; j++) {
+            if (ordens[j] < 0) {
+                throw new IllegalArgumentException("ordem inválida: " + ordens[j]);
+            }
+
+            pares[j] = ((long) ordens[j] << 32) | j;
+        }
+
+        Arrays.sort(pares);
+        crescente = new int[ordens.length];
+        for (int j = 0; j < ordens.length; j++) {
+            crescente[j] = (int) pares[j];
+        }
+    }
+
+    /**
+     * Produz a projeção do registro.
+     *
+     * @param registro Registro serializado, conforme {@link Seed#array()}.
+     * @return Registro formado pelos campos selecionados.
+     */
+    public byte[] projeta(byte[] registro) {
+        return projeta(ByteBuffer.wrap(registro), 0);
+    }
+
+    /**
+     * Produz a projeção do registro, sem copiá-lo.
+     *
+     * @param registro Registro de origem.
+     * @return Registro formado pelos campos selecionados.
+     */
+    public byte[] projeta(Seed registro) {
+        ByteBuffer bytes = registro.bytes();
+        return projeta(bytes, bytes.position());
+    }
+
+    /**
+     * Produz a projeção do registro que se inicia na posição
+     * indicada do buffer.
+     *
+     * @param origem Buffer que contém o registro de origem.
+     * @param inicio Posição inicial do registro de origem.
+     * @return Registro formado pelos campos selecionados.
+     */
+    public byte[] projeta(ByteBuffer origem, int inicio) {
+        int[] campos = localiza(origem, inicio);
+        byte[] projetado = new byte[tamanho(campos)];
+        escreve(origem, inicio, campos, ByteBuffer.wrap(projetado));
+
+        if (Metricas.HABILITADA) {
+            Metricas.alocacao(projetado.length);
+        }
+
+        return projetado;
+    }
+
+    /**
+     * Deposita a projeção do registro no buffer, a partir da
+     * posição corrente, que é avançada até o fim do registro
+     * produzido.
+     *
+     * @param origem Buffer que contém o registro de origem.
+     * @param inicio Posição inicial do registro de origem.
+     * @param destino Buffer que recebe o registro produzido.
+     * @return Quantidade de bytes depositados.
+     *
+     * @throws BufferOverflowException Se não há espaço suficiente
+     * no buffer, que não é alterado.
+     */
+    public int projeta(ByteBuffer origem, int inicio, ByteBuffer destino) {
+        int[] campos = localiza(origem, inicio);
+        if (destino.remaining() < tamanho(campos)) {
+            throw new BufferOverflowException();
+        }
+
+        return escreve(origem, inicio, campos, destino);
+    }
+
+    /**
+     * Localiza, no registro de origem, cada campo selecionado: a
+     * posição (ou -1, se ausente) e a quantidade de bytes, nas
+     * entradas 2j e 2j + 1, respectivamente, além da soma das
+     * quantidades de bytes, na última entrada.
+     */
+    private int[] localiza(ByteBuffer origem, int inicio) {
+        int k = ordens.length;
+        int[] campos = new int[2 * k + 1];
+        int quantidade = Seed.quantidade(origem, inicio);
+        if (k > 0 && ordens[crescente[k - 1]] >= quantidade) {
+            throw new IllegalArgumentException("campo inexistente: "
+                    + ordens[crescente[k - 1]]);
+        }
+
+        if (Seed.largo(origem, inicio)) {
+            // Tabela de posições: tempo constante por campo
+            for (int j = 0; j < k; j++) {
+                int campo = Seed.offset(origem, inicio, ordens[j]);
+                campos[2 * j] = campo;
+                campos[2 * j + 1] = Seed.offset(origem, inicio, ordens[j] + 1) - campo;
+            }
+        } else {
+            boolean esparso = Seed.esparso(origem, inicio);
+            int posicao = Seed.offset(origem, inicio, 0);
+            int proximo = 0;
+            for (int i = 0; proximo < k; i++) {
+                boolean presente = !esparso || Seed.presente(origem, inicio, i);
+                int largura = 0;
+                if (presente) {
+                    byte tipo = Seed.tipo(origem, inicio, i);
+                    largura = tipo == Seed.STRING || tipo == Seed.VETOR
+                            ? 4 + origem.getInt(posicao)
+                            : Seed.tamanhoDoTipo(tipo);
+                }
+
+                while (proximo < k && ordens[crescente[proximo]] == i) {
+                    int j = crescente[proximo++];
+                    campos[2 * j] = presente ? posicao : -1;
+                    campos[2 * j + 1] = largura;
+                }
+
+                posicao = posicao + largura;
+            }
+        }
+
+        int dados = 0;
+        for (int j = 0; j < k; j++) {
+            dados = dados + campos[2 * j + 1];
+        }
+
+        campos[2 * k] = dados;
+        return campos;
+    }
+
+    /**
+     * Verifica se algum campo selecionado está ausente.
+     */
+    private boolean esparso(int[] campos) {
+        for (int j = 0; j < ordens.length; j++) {
+            if (campos[2 * j] < 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Quantidade de bytes do registro produzido.
+     */
+    private int tamanho(int[] campos) {
+        int k = ordens.length;
+        int dados = campos[2 * k];
+        if (esparso(campos)) {
+            return Seed.POS_TIPOS_LARGO + k + 8 * ((k + 63) >>> 6) + dados;
+        }
+
+        if (k > Byte.MAX_VALUE) {
+            return Seed.POS_TIPOS_LARGO + k + 4 * (k + 1) + dados;
+        }
+
+        return 2 + k + dados;
+    }
+
+    /**
+     * Deposita o registro produzido no destino, a partir da
+     * posição corrente.
+     */
+    private int escreve(ByteBuffer origem, int inicio, int[] campos,
+                        ByteBuffer destino) {
+        int k = ordens.length;
+        int tamanho = tamanho(campos);
+        boolean esparso = esparso(campos);
+        boolean largo = !esparso && k > Byte.MAX_VALUE;
+
+        ByteBuffer alvo = destino.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int base = alvo.position();
+
+        alvo.put((byte) 0);
+        if (esparso || largo) {
+            alvo.put(esparso ? Seed.ESPARSO : Seed.LARGO);
+            alvo.putInt(k);
+        } else {
+            alvo.put((byte) k);
+        }
+
+        for (int j = 0; j < k; j++) {
+            alvo.put(Seed.tipo(origem, inicio, ordens[j]));
+        }
+
+        int tabela = alvo.position();
+        if (esparso) {
+            for (int w = 0; w < (k + 63) >>> 6; w++) {
+                long palavra = 0;
+                for (int j = w << 6; j < Math.min(k, (w + 1) << 6); j++) {
+                    if (campos[2 * j] >= 0) {
+                        palavra = palavra | (1L << j);
+                    }
+                }
+
+                alvo.putLong(palavra);
+            }
+        } else if (largo) {
+            alvo.position(tabela + 4 * (k + 1));
+        }
+
+        ByteBuffer fonte = origem.duplicate();
+        for (int j = 0; j < k; j++) {
+            if (largo) {
+                alvo.putInt(tabela + 4 * j, alvo.position() - base);
+            }
+
+            int campo = campos[2 * j];
+            if (campo < 0) {
+                continue;
+            }
+
+            fonte.clear();
+            fonte.position(campo);
+            fonte.limit(campo + campos[2 * j + 1]);
+            alvo.put(fonte);
+        }
+
+        if (largo) {
+            alvo.putInt(tabela + 4 * k, alvo.position() - base);
+        }
+
+        destino.position(alvo.position());
+
+        if (Metricas.HABILITADA) {
+            Metricas.registroSerializado(tamanho);
+        }
+
+        return tamanho;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016 Fábio Nogueira de Lucena
+ *
+ * Fábrica de Software - Instituto de Informática (UFG)
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.seed;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Valores de todos os campos de um registro, já decodificados.
+ *
+ * <p>Após a decodificação, produzida por {@link #de(Seed)}, nenhum
+ * acesso percorre o registro serializado nem decodifica sequências
+ * de caracteres. Instâncias são imutáveis (os vetores de bytes não
+ * devem ser alterados) e, portanto, podem ser compartilhadas entre
+ * <i>threads</i>, por exemplo, via {@link CacheRegistros}.
+ *
+ * <p>O peso ({@link #peso()}) é uma estimativa da quantidade de
+ * bytes ocupada pela instância no <i>heap</i>, incluídos os valores.
+ */
+public final class RegistroDecodificado {
+
+    /**
+     * Estimativa do tamanho do cabeçalho de um objeto.
+     */
+    private static final int CABECALHO = 16;
+
+    private final Object[] valores;
+    private final int peso;
+
+    private RegistroDecodificado(Object[] valores, int peso) {
+        this.valores = valores;
+        this.peso = peso;
+    }
+
+    /**
+     * Decodifica todos os campos do registro, em um único percurso
+     * dos bytes do registro.
+     *
+     * @param registro Registro a ser decodificado.
+     * @return Valores decodificados dos campos do registro.
+     */
+    public static RegistroDecodificado de(Seed registro) {
+        ByteBuffer dados = registro.bytes();
+        int inicio = dados.position();
+        int quantidade = Seed.quantidade(dados, inicio);
+        Object[] valores = new Object[quantidade];
+
+        // Instância, vetor e referências aos valores
+        int peso = CABECALHO + 8 + CABECALHO + 4 * quantidade;
+
+        // Campos são consecutivos em todos os formatos
+        int posicao = Seed.offset(dados, inicio, 0);
+        for (int i = 0; i < quantidade; i++) {
+            if (!Seed.presente(dados, inicio, i)) {
+                continue;
+            }
+
+            byte tipo = Seed.tipo(dados, inicio, i);
+            switch (tipo) {
+                case Seed.BYTE:
+                    valores[i] = dados.get(posicao);
+                    break;
+                case Seed.SHORT:
+                    valores[i] = dados.getShort(posicao);
+                    break;
+                case Seed.INT:
+                    valores[i] = dados.getInt(posicao);
+                    break;
+                case Seed.LONG:
+                    valores[i] = dados.getLong(posicao);
+                    break;
+                case Seed.FLOAT:
+                    valores[i] = dados.getFloat(posicao);
+                    break;
+                case Seed.DOUBLE:
+                    valores[i] = dados.getDouble(posicao);
+                    break;
+                case Seed.BOOLEAN:
+                    valores[i] = dados.get(posicao) == 1;
+                    break;
+                case Seed.CHAR:
+                    valores[i] = dados.getChar(posicao);
+                    break;
+                case Seed.STRING:
+                    byte[] utf8 = vetor(dados, posicao);
+                    String s = new String(utf8, StandardCharsets.UTF_8);
+                    valores[i] = s;
+                    posicao = posicao + 4 + utf8.length;
+
+                    if (Metricas.HABILITADA) {
+                        Metricas.stringDecodificada(utf8.length);
+                    }
+
+                    // Instância de String e vetor de caracteres
+                    peso = peso + CABECALHO + 8 + CABECALHO + 2 * s.length();
+                    continue;
+                case Seed.VETOR:
+                    byte[] vetor = vetor(dados, posicao);
+                    valores[i] = vetor;
+                    posicao = posicao + 4 + vetor.length;
+                    peso = peso + CABECALHO + vetor.length;
+                    continue;
+                default:
+                    throw new IllegalStateException("tipo desconhecido");
+            }
+
+            posicao = posicao + Seed.tamanhoDoTipo(tipo);
+
+            // Valor primitivo "empacotado"
+            peso = peso + CABECALHO + 8;
+        }
+
+        return new RegistroDecodificado(valores, peso);
+    }
+
+    /**
+     * Recupera o vetor de bytes, precedido do seu tamanho, que se
+     * inicia na posição indicada.
+     */
+    private static byte[] vetor(ByteBuffer dados, int posicao) {
+        byte[] vetor = new byte[dados.getInt(posicao)];
+        dados.position(posicao + 4);
+        dados.get(vetor);
+        return vetor;
+    }
+
+    /**
+     * Quantidade de campos do registro.
+     *
+     * @return Quantidade de campos.
+     */
+    public int quantidade() {
+        return valores.length;
+    }
+
+    /**
+     * Estimativa da quantidade de bytes ocupada pela instância.
+     *
+     * @return Peso da instância, em bytes.
+     */
+    public int peso() {
+        return peso;
+    }
+
+    /**
+     * Recupera o valor do campo.
+     *
+     * @param ordem Ordem do campo do registro.
+     * @return Valor do campo, por exemplo, {@code Integer} para
+     * um campo do tipo {@link Seed#INT}, ou {@code null}, caso o
+     * campo esteja ausente.
+     */
+    public Object valor(int ordem) {
+        return valores[ordem];
+    }
+
+    /**
+     * Recupera o valor de campo inteiro ({@link Seed#BYTE},
+     * {@link Seed#SHORT}, {@link Seed#INT} ou {@link Seed#LONG}) ou
+     * o código de um campo do tipo {@link Seed#CHAR}.
+     *
+     * @param ordem Ordem do campo do registro.
+     * @return Valor do campo.
+     *
+     * @throws IllegalArgumentException Se o campo é de outro tipo.
+     * @throws IllegalStateException Se o campo está ausente.
+     */
+    public long obtemLong(int ordem) {
+        Object valor = valores[ordem];
+        if (valor instanceof Long || valor instanceof Integer
+                || valor instanceof Short || valor instanceof Byte) {
+            return ((Number) valor).longValue();
+        }
+
+        if (valor instanceof Character) {
+            return (Character) valor;
+        }
+
+        if (valor == null) {
+            throw new IllegalStateException("campo ausente: " + ordem);
+        }
+
+        throw new IllegalArgumentException("campo " + ordem
+                + " não é inteiro: " + valor.getClass().getSimpleName());
+    }
+
+    /**
+     * Recupera o valor de campo do tipo {@link Seed#STRING}.
+     *
+     * @param ordem Ordem do campo do registro.
+     * @return Valor do campo.
+     */
+    public String obtemString(int ordem) {
+        return (String) valores[ordem];
+    }
+
+    /**
+     * Recupera o valor de campo do tipo {@link Seed#VETOR}.
+     *
+     * @param ordem Ordem do campo do registro.
+     * @return Valor do campo (não deve ser alterado).
+     */
+    public byte[] obtemByteArray(int ordem) {
+        return (byte[]) valores[ordem];
+    }
+}
@@ -7,6 +7,7 @@
 
 package com.github.kyriosdata.seed;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
@@ -44,6 +45,29 @@ import java.nio.charset.StandardCharsets;
  * de tipos de tamanho variável como sequências de caracteres e
  * vetores de bytes. Nesses casos, o tamanho de cada um deles só
  * pode ser definido quando o valor correspondente é estabelecido.
+ * Quando os valores estão disponíveis em outra ordem, convém
+ * empregar {@link Montador}.
+ *
+ * <p>Registros com mais de 127 campos fazem uso do formato
+ * largo, obtido por {@link #serializaLargo(byte[])}. Nesse formato
+ * o segundo byte é {@link #LARGO}, seguido da quantidade de campos
+ * ({@code int}), do tipo de cada campo e de uma tabela com a posição
+ * de cada campo ({@code int}, a partir do início do registro), além
+ * da posição do fim do registro. A tabela permite localizar qualquer
+ * campo em tempo constante, independente da quantidade de campos.
+ * A tabela é preenchida à medida que os campos são definidos, ou
+ * seja, a exigência de definição na ordem dos campos permanece.
+ * Os demais métodos não dependem do formato empregado.
+ *
+ * <p>Registros nos quais a maioria dos campos não possui valor
+ * fazem uso do formato esparso, obtido por
+ * {@link #serializaEsparso(byte[])}. Nesse formato o segundo byte é
+ * {@link #ESPARSO}, seguido da quantidade de campos ({@code int}),
+ * do tipo de cada campo e de um mapa de bits ({@code long}, um bit
+ * por campo) que indica os campos presentes. Apenas os valores dos
+ * campos presentes são armazenados, e a localização de um campo
+ * percorre apenas os campos presentes que o antecedem. Campos não
+ * definidos são ausentes (veja {@link #presente(int)}).
  *
  * <p>O uso da classe para a serialização envolve a obtenção de
  * uma instância para tal por meio do método {@link #serializa(byte[])}.
@@ -107,6 +131,22 @@ public class Seed {
      */
     public final static byte VETOR = 9;
 
+    /**
+     * Valor do segundo byte da metainformação (quantidade de
+     * campos) que identifica o formato largo.
+     *
+     * @see #serializaLargo(byte[])
+     */
+    public final static byte LARGO = -1;
+
+    /**
+     * Valor do segundo byte da metainformação (quantidade de
+     * campos) que identifica o formato esparso.
+     *
+     * @see #serializaEsparso(byte[])
+     */
+    public final static byte ESPARSO = -2;
+
     /**
      * Posição no vetor de metainformações que contém a
      * quantidade de campos do registro.
@@ -114,7 +154,15 @@ public class Seed {
     private final static byte POS_QTDE = 1;
 
     /**
-     * Tamanho máximo do buffer empregado para montar o registro.
+     * Posição, nos formatos largo e esparso, do primeiro tipo de
+     * campo, após o indicador ({@link #LARGO} ou {@link #ESPARSO})
+     * e a quantidade ({@code int}).
+     */
+    final static byte POS_TIPOS_LARGO = 6;
+
+    /**
+     * Tamanho inicial do buffer empregado para montar o registro.
+     * O buffer é ampliado conforme necessário.
      */
     private static final int MAX_BUFFER_SIZE = 128;
 
@@ -123,7 +171,7 @@ public class Seed {
      * tipos primitivos. Observe que o valor do tipo
      * é o índice no vetor do tamanho correspondente.
      */
-    private final int[] tamanho = new int[]{1, 2, 4, 8, 4, 8, 1, 2, 0, 0};
+    private static final int[] TAMANHO = {1, 2, 4, 8, 4, 8, 1, 2, 0, 0};
 
     /**
      * Marca início dos dados propriamente ditos, primeiro
@@ -137,6 +185,22 @@ public class Seed {
      */
     private ByteBuffer buffer;
 
+    /**
+     * No formato largo, quantidade de entradas da tabela de
+     * posições, além da primeira, já preenchidas. Durante a
+     * serialização a tabela é preenchida conforme os campos são
+     * definidos. Na desserialização a tabela está completa.
+     */
+    private int validas = Integer.MAX_VALUE;
+
+    /**
+     * Indica se o buffer foi criado pela própria instância (para
+     * serialização) e, portanto, pode ser substituído por outro
+     * maior. O buffer fornecido na desserialização nunca é
+     * substituído.
+     */
+    private boolean ampliavel;
+
     /**
      * Evita criação desenecessária de instância.
      * Consulte {@link #serializa(byte[])} ou
@@ -161,7 +225,8 @@ public class Seed {
 
         // Buffer temporário no qual o registro
         // será construído. 
-        s.buffer = ByteBuffer.allocate(MAX_BUFFER_SIZE);
+        s.buffer = ByteBuffer.allocate(Math.max(MAX_BUFFER_SIZE, 2 * meta.length));
+        s.ampliavel = true;
 
         // Primeiro conteúdo do registro são as
         // metainformações correspondentes.
@@ -173,10 +238,73 @@ public class Seed {
         return s;
     }
 
+    /**
+     * Cria uma instância, no formato largo, a ser utilizada para
+     * serialização de registro com os campos dos tipos indicados.
+     * Não há limite para a quantidade de campos.
+     *
+     * @param tipos Tipo de cada um dos campos do registro, na
+     *              ordem em que devem ser armazenados.
+     * @return Objeto apto a realizar operações de serialização.
+     */
+    public static Seed serializaLargo(byte[] tipos) {
+        int quantidade = tipos.length;
+        int tabela = POS_TIPOS_LARGO + quantidade;
+        int dados = tabela + 4 * (quantidade + 1);
+
+        Seed s = new Seed();
+        s.buffer = ByteBuffer.allocate(Math.max(MAX_BUFFER_SIZE, 2 * dados));
+        s.ampliavel = true;
+        s.buffer.put(POS_QTDE, LARGO);
+        s.buffer.putInt(POS_QTDE + 1, quantidade);
+        s.buffer.position(POS_TIPOS_LARGO);
+        s.buffer.put(tipos);
+
+        // Primeiro campo imediatamente após a tabela
+        s.buffer.putInt(tabela, dados);
+
+        s.setOffsetInicio(0);
+        s.validas = 0;
+
+        return s;
+    }
+
+    /**
+     * Cria uma instância, no formato esparso, a ser utilizada para
+     * serialização de registro com os campos dos tipos indicados,
+     * dos quais apenas aqueles definidos ocupam bytes. A definição
+     * dos campos permanece na ordem dos campos, e os campos não
+     * definidos são ausentes.
+     *
+     * @param tipos Tipo de cada um dos campos do registro, na
+     *              ordem em que devem ser armazenados.
+     * @return Objeto apto a realizar operações de serialização.
+     */
+    public static Seed serializaEsparso(byte[] tipos) {
+        int quantidade = tipos.length;
+        int dados = POS_TIPOS_LARGO + quantidade + 8 * palavrasMapa(quantidade);
+
+        Seed s = new Seed();
+        s.buffer = ByteBuffer.allocate(Math.max(MAX_BUFFER_SIZE, 2 * dados));
+        s.ampliavel = true;
+        s.buffer.put(POS_QTDE, ESPARSO);
+        s.buffer.putInt(POS_QTDE + 1, quantidade);
+        s.buffer.position(POS_TIPOS_LARGO);
+        s.buffer.put(tipos);
+
+        s.setOffsetInicio(0);
+
+        return s;
+    }
+
     /**
      * Cria uma instância a ser utilizada para recuperar valores
      * do vetor de bytes previamente serializado.
      *
+     * <p>Valores definidos posteriormente são escritos no próprio
+     * vetor, que nunca é substituído (veja
+     * {@link #desserializa(ByteBuffer, int)}).
+     *
      * @param dados Vetor de bytes previamente serializado conforme
      *              a descrição dessa classe.
      * @return Instância que recupera valores do vetor de bytes.
@@ -191,6 +319,10 @@ public class Seed {
      * Cria uma instância a ser utilizada para recuperar valores
      * do vetor de bytes previamente serializado.
      *
+     * <p>Valores definidos posteriormente são escritos no próprio
+     * vetor, que nunca é substituído (veja
+     * {@link #desserializa(ByteBuffer, int)}).
+     *
      * @param dados Vetor de bytes previamente serializado conforme
      *              a descrição dessa classe.
      * @param inicio Posição inicial do registro no vetor.
@@ -199,13 +331,44 @@ public class Seed {
      * @see #serializa(byte[])
      */
     public static Seed desserializa(byte[] dados, int inicio) {
+        return desserializa(ByteBuffer.wrap(dados), inicio);
+    }
+
+    /**
+     * Cria uma instância a ser utilizada para recuperar valores
+     * de registro serializado disponível em um buffer, por exemplo,
+     * um arquivo mapeado em memória.
+     *
+     * <p>O buffer fornecido não é alterado (nem a posição
+     * corrente), ou seja, pode ser compartilhado por várias
+     * instâncias.
+     *
+     * <p>Valores definidos posteriormente (por exemplo, via
+     * {@link #defineInt(int, int)}) são escritos no conteúdo do
+     * buffer fornecido. Esse buffer nunca é substituído por outro
+     * maior: a definição de um valor que não cabe nele resulta em
+     * {@link BufferOverflowException}, e o buffer permanece
+     * inalterado.
+     *
+     * @param dados Buffer que contém registro previamente
+     *              serializado conforme a descrição dessa classe.
+     * @param inicio Posição inicial do registro no buffer.
+     * @return Instância que recupera valores do buffer.
+     *
+     * @see #serializa(byte[])
+     */
+    public static Seed desserializa(ByteBuffer dados, int inicio) {
         Seed s = new Seed();
 
         // Buffer do qual dados serão recuperados
-        s.buffer = ByteBuffer.wrap(dados);
+        s.buffer = dados.duplicate();
 
         s.setOffsetInicio(inicio);
 
+        if (Metricas.HABILITADA) {
+            Metricas.registroDesserializado();
+        }
+
         return s;
     }
 
@@ -219,6 +382,7 @@ public class Seed {
      */
     public void setOffsetInicio(int inicio) {
         offsetInicio = inicio;
+        validas = Integer.MAX_VALUE;
     }
 
     /**
@@ -240,14 +404,38 @@ public class Seed {
      * serialização.
      */
     public byte[] array() {
-        byte[] bytesUsados = new byte[tamanhoRegistro()];
+        byte[] bytesUsados = new byte[offset(quantidade())];
 
         buffer.position(0);
         buffer.get(bytesUsados);
 
+        if (Metricas.HABILITADA) {
+            Metricas.registroSerializado(bytesUsados.length);
+            Metricas.alocacao(bytesUsados.length);
+        }
+
         return bytesUsados;
     }
 
+    /**
+     * Recupera os bytes do registro, sem cópia, ou seja, uma visão
+     * (somente leitura) do buffer empregado no processo de
+     * serialização/desserialização.
+     *
+     * @return Buffer cujo conteúdo, da posição corrente até o limite,
+     * é exatamente o registro. Alterações posteriores do registro
+     * podem ser refletidas no buffer retornado.
+     *
+     * @see #array()
+     */
+    public ByteBuffer bytes() {
+        int tamanho = tamanhoRegistro();
+        ByteBuffer visao = buffer.asReadOnlyBuffer();
+        visao.limit(offsetInicio + tamanho);
+        visao.position(offsetInicio);
+        return visao;
+    }
+
     /**
      * Recupera o valor correspondente ao tipo da metainformação.
      *
@@ -304,11 +492,8 @@ public class Seed {
      * @param valor O valor definido para o campo.
      */
     public void defineBoolean(int ordem, boolean valor) {
-        ByteBuffer bf = ByteBuffer.allocate(1);
-        bf.put((byte) (valor ? 1 : 0));
-        byte[] bytesValor = bf.array();
-        buffer.position(offset(ordem));
-        buffer.put(bytesValor);
+        posiciona(ordem, 1);
+        buffer.put((byte) (valor ? 1 : 0));
     }
 
     /**
@@ -328,11 +513,8 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineChar(int ordem, char valor) {
-        ByteBuffer buffer1 = ByteBuffer.allocate(2);
-        buffer1.putChar(valor);
-        byte[] bytesValor = buffer1.array();
-        buffer.position(offset(ordem));
-        buffer.put(bytesValor);
+        posiciona(ordem, 2);
+        buffer.putChar(valor);
     }
 
     /**
@@ -352,7 +534,7 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineByte(int ordem, byte valor) {
-        buffer.position(offset(ordem));
+        posiciona(ordem, 1);
         buffer.put(valor);
     }
 
@@ -373,7 +555,7 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineShort(int ordem, short valor) {
-        buffer.position(offset(ordem));
+        posiciona(ordem, 2);
         buffer.putShort(valor);
     }
 
@@ -395,7 +577,7 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineInt(int ordem, int valor) {
-        buffer.position(offset(ordem));
+        posiciona(ordem, 4);
         buffer.putInt(valor);
     }
 
@@ -417,7 +599,7 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineLong(int ordem, long valor) {
-        buffer.position(offset(ordem));
+        posiciona(ordem, 8);
         buffer.putLong(valor);
     }
 
@@ -439,7 +621,7 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineFloat(int ordem, float valor) {
-        buffer.position(offset(ordem));
+        posiciona(ordem, 4);
         buffer.putFloat(valor);
     }
 
@@ -461,7 +643,7 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineDouble(int ordem, double valor) {
-        buffer.position(offset(ordem));
+        posiciona(ordem, 8);
         buffer.putDouble(valor);
     }
 
@@ -502,8 +684,10 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineString(int ordem, String valor) {
-        buffer.position(offset(ordem));
-        buffer.put(pack(valor));
+        byte[] bytes = pack(valor);
+        posiciona(ordem, bytes.length);
+        buffer.put(bytes);
+        invalidaPosicoes(ordem);
     }
 
     /**
@@ -513,9 +697,37 @@ public class Seed {
      * @return Valor do caractere armazenado no registro.
      */
     public String obtemString(int ordem) {
-        int delta = offset(ordem);
-        buffer.position(delta);
-        return unpackString(buffer.array(), delta);
+        return unpackString(offset(ordem));
+    }
+
+    /**
+     * Define o valor {@code String} para a ordem indicada no
+     * registro por meio do código correspondente no dicionário.
+     * O campo deve ser do tipo {@link #INT}.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param valor O valor a ser definido para o campo.
+     * @param dicionario Dicionário que associa o valor ao código
+     *                   armazenado no campo.
+     *
+     * @see #obtemString(int, Dicionario)
+     */
+    public void defineString(int ordem, String valor, Dicionario dicionario) {
+        defineInt(ordem, dicionario.codigo(valor));
+    }
+
+    /**
+     * Recupera o valor {@code String}, cujo código no dicionário
+     * está armazenado na ordem indicada do registro.
+     *
+     * @param ordem A ordem do campo no registro.
+     * @param dicionario Dicionário empregado na definição do campo.
+     * @return Instância mantida pelo dicionário para o valor.
+     *
+     * @see #defineString(int, String, Dicionario)
+     */
+    public String obtemString(int ordem, Dicionario dicionario) {
+        return dicionario.valor(obtemInt(ordem));
     }
 
     /**
@@ -526,8 +738,10 @@ public class Seed {
      * @param valor O valor a ser definido para o campo.
      */
     public void defineByteArray(int ordem, byte[] valor) {
-        buffer.position(offset(ordem));
-        buffer.put(pack(valor));
+        byte[] bytes = pack(valor);
+        posiciona(ordem, bytes.length);
+        buffer.put(bytes);
+        invalidaPosicoes(ordem);
     }
 
     /**
@@ -537,9 +751,7 @@ public class Seed {
      * @return Valor do caractere armazenado no registro.
      */
     public byte[] obtemByteArray(int ordem) {
-        int delta = offset(ordem);
-        buffer.position(delta);
-        return unpackByteArray(buffer.array(), delta);
+        return unpackByteArray(offset(ordem));
     }
 
     /**
@@ -559,25 +771,311 @@ public class Seed {
      * @param ordem Ordem do campo do registro.
      * @return Quantidade de bytes, a partir da qual se
      * inicia o membro de ordem indicada.
+     *
+     * @throws IllegalStateException Se o campo está ausente
+     * (formato esparso).
      */
     public int offset(int ordem) {
-        int delta = posicaoInicialDados();
+        if (validas < ordem && largo(buffer, offsetInicio)) {
+            preenchePosicoes(ordem);
+        }
+
+        if (esparso(buffer, offsetInicio) && ordem < quantidade()
+                && !presente(buffer, offsetInicio, ordem)) {
+            throw new IllegalStateException("campo ausente: " + ordem);
+        }
+
+        return offset(buffer, offsetInicio, ordem);
+    }
+
+    /**
+     * Preenche, no formato largo, as entradas da tabela de
+     * posições até a ordem indicada, a partir dos campos
+     * anteriores já definidos.
+     *
+     * @param ordem Ordem do campo cuja posição é preenchida.
+     */
+    private void preenchePosicoes(int ordem) {
+        int tabela = offsetInicio + POS_TIPOS_LARGO + quantidade();
+        while (validas < ordem) {
+            int campo = offsetInicio + buffer.getInt(tabela + 4 * validas);
+            byte tipo = buffer.get(offsetInicio + POS_TIPOS_LARGO + validas);
+            int ocupados = TAMANHO[tipo];
+            if (tipo == STRING || tipo == VETOR) {
+                ocupados = 4 + buffer.getInt(campo);
+            }
+
+            validas++;
+            buffer.putInt(tabela + 4 * validas, campo + ocupados - offsetInicio);
+        }
+    }
+
+    /**
+     * Invalida, no formato largo, as posições dos campos que
+     * sucedem aquele de ordem indicada, cujo tamanho pode ter
+     * sido alterado.
+     *
+     * @param ordem Ordem do campo de tamanho variável definido.
+     */
+    private void invalidaPosicoes(int ordem) {
+        if (validas > ordem) {
+            validas = ordem;
+        }
+    }
+
+    /**
+     * Posiciona o buffer no início do campo de ordem indicada,
+     * a ser definido, e assegura espaço para os bytes do valor.
+     *
+     * @param ordem Ordem do campo a ser definido.
+     * @param bytes Quantidade de bytes a ser depositada.
+     */
+    private void posiciona(int ordem, int bytes) {
+        // No formato esparso a posição independe da presença do
+        // próprio campo, marcada apenas se houver espaço para o valor
+        boolean esparso = esparso(buffer, offsetInicio);
+        int posicao = esparso ? offset(buffer, offsetInicio, ordem) : offset(ordem);
+        garante(posicao + bytes);
+
+        if (esparso) {
+            int palavra = offsetInicio + POS_TIPOS_LARGO + quantidade() + 8 * (ordem >>> 6);
+            buffer.putLong(palavra, buffer.getLong(palavra) | (1L << ordem));
+        }
+
+        buffer.position(posicao);
+    }
+
+    /**
+     * Amplia o buffer, caso necessário, para que contenha
+     * pelo menos a quantidade de bytes indicada. Apenas o buffer
+     * criado para serialização é ampliado.
+     *
+     * @param capacidade Capacidade mínima do buffer.
+     *
+     * @throws BufferOverflowException Se o buffer, fornecido na
+     * desserialização, não possui a capacidade indicada.
+     */
+    private void garante(int capacidade) {
+        if (capacidade <= buffer.capacity()) {
+            return;
+        }
+
+        // Substituir o buffer fornecido interromperia, de forma
+        // silenciosa, a escrita no vetor de quem o forneceu
+        if (!ampliavel) {
+            throw new BufferOverflowException();
+        }
+
+        ByteBuffer ampliado = ByteBuffer.allocate(
+                Math.max(capacidade, 2 * buffer.capacity()));
+        buffer.clear();
+        ampliado.put(buffer);
+        buffer = ampliado;
+
+        if (Metricas.HABILITADA) {
+            Metricas.crescimento(ampliado.capacity());
+        }
+    }
+
+    /**
+     * Produz a posição, no buffer, do campo de ordem indicada
+     * do registro que se inicia em {@code inicio}.
+     *
+     * <p>Permite localizar campos diretamente nos bytes de um
+     * registro serializado, sem a criação de uma instância.
+     *
+     * @param dados Buffer que contém o registro serializado.
+     * @param inicio Posição inicial do registro no buffer.
+     * @param ordem Ordem do campo do registro.
+     * @return Posição do primeiro byte do campo no buffer.
+     *
+     * @see #offset(int)
+     */
+    static int offset(ByteBuffer dados, int inicio, int ordem) {
+        if (largo(dados, inicio)) {
+            int tabela = inicio + POS_TIPOS_LARGO + quantidade(dados, inicio);
+            return inicio + dados.getInt(tabela + 4 * ordem);
+        }
+
+        if (esparso(dados, inicio)) {
+            return offsetEsparso(dados, inicio, ordem);
+        }
+
+        if (Metricas.HABILITADA) {
+            Metricas.passosOffset(ordem);
+        }
+
+        int delta = posicaoInicialDados(dados, inicio);
         for (int i = 0; i < ordem; i++) {
-            byte tipo = buffer.get(offsetInicio + i + 2);
+            byte tipo = dados.get(inicio + i + 2);
             if (tipo == STRING || tipo == VETOR) {
-                buffer.position(offset(i));
 
                 // Inclui o inteiro que guarda o tamanho
                 // mais a quantidade de bytes por ele indicada
-                delta = delta + 4 + buffer.getInt();
+                delta = delta + 4 + dados.getInt(delta);
             } else {
-                delta = delta + tamanho[tipo];
+                delta = delta + TAMANHO[tipo];
+            }
+        }
+
+        return delta;
+    }
+
+    /**
+     * Produz a posição do campo no formato esparso, após os
+     * campos presentes que o antecedem, identificados pelos bits
+     * do mapa de presença.
+     */
+    private static int offsetEsparso(ByteBuffer dados, int inicio, int ordem) {
+        int tipos = inicio + POS_TIPOS_LARGO;
+        int mapa = tipos + dados.getInt(inicio + POS_QTDE + 1);
+        int palavras = palavrasMapa(ordem);
+        int delta = mapa + 8 * palavrasMapa(dados.getInt(inicio + POS_QTDE + 1));
+        int passos = 0;
+
+        for (int w = 0; w < palavras; w++) {
+            long bits = dados.getLong(mapa + 8 * w);
+            int restantes = ordem - (w << 6);
+            if (restantes < 64) {
+                bits = bits & ((1L << restantes) - 1);
+            }
+
+            while (bits != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits = bits & (bits - 1);
+
+                byte tipo = dados.get(tipos + i);
+                if (tipo == STRING || tipo == VETOR) {
+                    delta = delta + 4 + dados.getInt(delta);
+                } else {
+                    delta = delta + TAMANHO[tipo];
+                }
+
+                passos++;
             }
         }
 
+        if (Metricas.HABILITADA) {
+            Metricas.passosOffset(passos);
+        }
+
         return delta;
     }
 
+    /**
+     * Quantidade de palavras ({@code long}) do mapa de presença
+     * de um registro no formato esparso com os campos indicados.
+     */
+    private static int palavrasMapa(int quantidade) {
+        return (quantidade + 63) >>> 6;
+    }
+
+    /**
+     * Verifica se o campo possui valor. Apenas no formato esparso
+     * um campo pode estar ausente.
+     *
+     * @param ordem Ordem do campo do registro.
+     * @return {@code true} se e somente se o campo possui valor.
+     *
+     * @see #serializaEsparso(byte[])
+     */
+    public boolean presente(int ordem) {
+        return presente(buffer, offsetInicio, ordem);
+    }
+
+    /**
+     * Verifica se o campo de ordem indicada do registro que se
+     * inicia em {@code inicio} possui valor.
+     *
+     * @param dados Buffer que contém o registro serializado.
+     * @param inicio Posição inicial do registro no buffer.
+     * @param ordem Ordem do campo do registro.
+     * @return {@code true} se e somente se o campo possui valor.
+     */
+    static boolean presente(ByteBuffer dados, int inicio, int ordem) {
+        if (!esparso(dados, inicio)) {
+            return true;
+        }
+
+        int mapa = inicio + POS_TIPOS_LARGO + dados.getInt(inicio + POS_QTDE + 1);
+        return (dados.getLong(mapa + 8 * (ordem >>> 6)) & (1L << ordem)) != 0;
+    }
+
+    /**
+     * Recupera o tipo do campo de ordem indicada do registro
+     * que se inicia em {@code inicio}.
+     *
+     * @param dados Buffer que contém o registro serializado.
+     * @param inicio Posição inicial do registro no buffer.
+     * @param ordem Ordem do campo do registro.
+     * @return O tipo do campo, por exemplo, {@link #INT}.
+     */
+    static byte tipo(ByteBuffer dados, int inicio, int ordem) {
+        if (dados.get(inicio + POS_QTDE) < 0) {
+            return dados.get(inicio + POS_TIPOS_LARGO + ordem);
+        }
+
+        return dados.get(inicio + 2 + ordem);
+    }
+
+    /**
+     * Recupera a quantidade de campos do registro que se
+     * inicia em {@code inicio}.
+     *
+     * @param dados Buffer que contém o registro serializado.
+     * @param inicio Posição inicial do registro no buffer.
+     * @return Quantidade de campos do registro.
+     */
+    static int quantidade(ByteBuffer dados, int inicio) {
+        byte quantidade = dados.get(inicio + POS_QTDE);
+        return quantidade < 0
+                ? dados.getInt(inicio + POS_QTDE + 1)
+                : quantidade;
+    }
+
+    /**
+     * Verifica se o registro que se inicia em {@code inicio}
+     * faz uso do formato largo.
+     *
+     * @param dados Buffer que contém o registro serializado.
+     * @param inicio Posição inicial do registro no buffer.
+     * @return {@code true} se e somente se o registro faz uso
+     * do formato largo.
+     *
+     * @see #serializaLargo(byte[])
+     */
+    static boolean largo(ByteBuffer dados, int inicio) {
+        return dados.get(inicio + POS_QTDE) == LARGO;
+    }
+
+    /**
+     * Verifica se o registro que se inicia em {@code inicio}
+     * faz uso do formato esparso.
+     *
+     * @param dados Buffer que contém o registro serializado.
+     * @param inicio Posição inicial do registro no buffer.
+     * @return {@code true} se e somente se o registro faz uso
+     * do formato esparso.
+     *
+     * @see #serializaEsparso(byte[])
+     */
+    static boolean esparso(ByteBuffer dados, int inicio) {
+        return dados.get(inicio + POS_QTDE) == ESPARSO;
+    }
+
+    /**
+     * Quantidade de bytes empregada para armazenar um valor
+     * do tipo indicado.
+     *
+     * @param tipo O tipo, por exemplo, {@link #LONG}.
+     * @return Quantidade de bytes de um valor do tipo ou zero,
+     * caso o tipo seja de tamanho variável ({@link #STRING}
+     * ou {@link #VETOR}).
+     */
+    static int tamanhoDoTipo(byte tipo) {
+        return TAMANHO[tipo];
+    }
+
     /**
      * Identifica o tamanho em bytes do registro após
      * valores dos campos estarem definidos.
@@ -588,27 +1086,183 @@ public class Seed {
      * sequências de caracteres e vetores de byte.
      *
      * @return Quantidade de bytes ocupada pela serialização
-     * do registro.
+     * do registro, a partir de {@link #getOffsetInicio()}.
+     */
+    public int tamanhoRegistro() {
+        return offset(quantidade()) - offsetInicio;
+    }
+
+    /**
+     * Identifica o tamanho em bytes do registro serializado que
+     * se inicia na posição indicada.
+     *
+     * @param dados Buffer que contém o registro serializado.
+     * @param inicio Posição inicial do registro no buffer.
+     * @return Quantidade de bytes ocupada pelo registro.
+     */
+    static int tamanhoRegistro(ByteBuffer dados, int inicio) {
+        return offset(dados, inicio, quantidade(dados, inicio)) - inicio;
+    }
+
+    /**
+     * Equivalente a {@link #offset(ByteBuffer, int, int)} para o
+     * registro armazenado em um vetor, sem a criação de um buffer
+     * que o envolva.
+     *
+     * @param dados Vetor que contém o registro serializado.
+     * @param inicio Posição inicial do registro no vetor.
+     * @param ordem Ordem do campo do registro.
+     * @return Posição do primeiro byte do campo no vetor.
+     */
+    static int offset(byte[] dados, int inicio, int ordem) {
+        byte formato = dados[inicio + POS_QTDE];
+        if (formato == LARGO) {
+            int tabela = inicio + POS_TIPOS_LARGO + inteiro(dados, inicio + POS_QTDE + 1);
+            return inicio + inteiro(dados, tabela + 4 * ordem);
+        }
+
+        if (formato == ESPARSO) {
+            return offsetEsparso(dados, inicio, ordem);
+        }
+
+        if (Metricas.HABILITADA) {
+            Metricas.passosOffset(ordem);
+        }
+
+        int delta = formato + 2 + inicio;
+        for (int i = 0; i < ordem; i++) {
+            byte tipo = dados[inicio + i + 2];
+            if (tipo == STRING || tipo == VETOR) {
+                delta = delta + 4 + inteiro(dados, delta);
+            } else {
+                delta = delta + TAMANHO[tipo];
+            }
+        }
+
+        return delta;
+    }
+
+    /**
+     * Equivalente a {@link #offsetEsparso(ByteBuffer, int, int)}
+     * para o registro armazenado em um vetor.
+     */
+    private static int offsetEsparso(byte[] dados, int inicio, int ordem) {
+        int tipos = inicio + POS_TIPOS_LARGO;
+        int quantidade = inteiro(dados, inicio + POS_QTDE + 1);
+        int mapa = tipos + quantidade;
+        int palavras = palavrasMapa(ordem);
+        int delta = mapa + 8 * palavrasMapa(quantidade);
+        int passos = 0;
+
+        for (int w = 0; w < palavras; w++) {
+            long bits = longo(dados, mapa + 8 * w);
+            int restantes = ordem - (w << 6);
+            if (restantes < 64) {
+                bits = bits & ((1L << restantes) - 1);
+            }
+
+            while (bits != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits = bits & (bits - 1);
+
+                byte tipo = dados[tipos + i];
+                if (tipo == STRING || tipo == VETOR) {
+                    delta = delta + 4 + inteiro(dados, delta);
+                } else {
+                    delta = delta + TAMANHO[tipo];
+                }
+
+                passos++;
+            }
+        }
+
+        if (Metricas.HABILITADA) {
+            Metricas.passosOffset(passos);
+        }
+
+        return delta;
+    }
+
+    /**
+     * Equivalente a {@link #presente(ByteBuffer, int, int)} para o
+     * registro armazenado em um vetor.
+     *
+     * @param dados Vetor que contém o registro serializado.
+     * @param inicio Posição inicial do registro no vetor.
+     * @param ordem Ordem do campo do registro.
+     * @return {@code true} se e somente se o campo possui valor.
+     */
+    static boolean presente(byte[] dados, int inicio, int ordem) {
+        if (dados[inicio + POS_QTDE] != ESPARSO) {
+            return true;
+        }
+
+        int mapa = inicio + POS_TIPOS_LARGO + inteiro(dados, inicio + POS_QTDE + 1);
+        return (longo(dados, mapa + 8 * (ordem >>> 6)) & (1L << ordem)) != 0;
+    }
+
+    /**
+     * Equivalente a {@link #tipo(ByteBuffer, int, int)} para o
+     * registro armazenado em um vetor.
+     *
+     * @param dados Vetor que contém o registro serializado.
+     * @param inicio Posição inicial do registro no vetor.
+     * @param ordem Ordem do campo do registro.
+     * @return O tipo do campo, por exemplo, {@link #INT}.
      */
-    private int tamanhoRegistro() {
-        int membros = buffer.get(offsetInicio + 1);
+    static byte tipo(byte[] dados, int inicio, int ordem) {
+        if (dados[inicio + POS_QTDE] < 0) {
+            return dados[inicio + POS_TIPOS_LARGO + ordem];
+        }
 
-        return offset(membros);
+        return dados[inicio + 2 + ordem];
     }
 
     /**
-     * Posição inicial dos dados do registro, ou seja,
-     * posição do primeiro byte após metainformações.
+     * Lê o {@code int} armazenado (<i>big-endian</i>) na posição
+     * indicada do vetor, como {@link ByteBuffer#getInt(int)}.
+     */
+    static int inteiro(byte[] dados, int posicao) {
+        return (dados[posicao] << 24)
+                | ((dados[posicao + 1] & 0xFF) << 16)
+                | ((dados[posicao + 2] & 0xFF) << 8)
+                | (dados[posicao + 3] & 0xFF);
+    }
+
+    /**
+     * Lê o {@code long} armazenado (<i>big-endian</i>) na posição
+     * indicada do vetor, como {@link ByteBuffer#getLong(int)}.
+     */
+    static long longo(byte[] dados, int posicao) {
+        return ((long) inteiro(dados, posicao) << 32)
+                | (inteiro(dados, posicao + 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Quantidade de campos do registro.
+     *
+     * @return Quantidade de campos do registro.
+     */
+    private int quantidade() {
+        return quantidade(buffer, offsetInicio);
+    }
+
+    /**
+     * Posição inicial dos dados de registro no formato
+     * compacto, ou seja, posição do primeiro byte após
+     * metainformações.
      * <p>
      * <p>O primeiro byte não é utilizado, o segundo
      * indica a quantidade de campos do registro, ou seja,
      * a posição inicial é dada pela quantidade de campos
      * do registro mais 2.
      *
+     * @param dados Buffer que contém o registro serializado.
+     * @param inicio Posição inicial do registro no buffer.
      * @return A posição do primeiro byte de dados do registro.
      */
-    private int posicaoInicialDados() {
-        return buffer.get(offsetInicio + POS_QTDE) + 2 + offsetInicio;
+    private static int posicaoInicialDados(ByteBuffer dados, int inicio) {
+        return dados.get(inicio + POS_QTDE) + 2 + inicio;
     }
 
     /**
@@ -626,7 +1280,7 @@ public class Seed {
      *
      * @param bytes Vetor de bytes a ser empacotado.
      * @return Vetor de bytes que empacota um vetor de bytes.
-     * @see #unpackByteArray(byte[], int)
+     * @see #unpackByteArray(int)
      */
     private byte[] pack(byte[] bytes) {
         int tamanho = bytes.length;
@@ -635,18 +1289,26 @@ public class Seed {
         ByteBuffer buffer = ByteBuffer.allocate(4 + tamanho);
         buffer.putInt(tamanho);
         buffer.put(bytes);
+
+        if (Metricas.HABILITADA) {
+            Metricas.alocacao(4 + tamanho);
+        }
+
         return buffer.array();
     }
 
     /**
-     * Recupera {@code char} depositado no buffer na posição indicada.
+     * Recupera {@code String} depositada no buffer na posição indicada.
      *
-     * @param buffer Vetor do qual o {@code char} será recuperado.
      * @param offset Posição inicial do valor a ser recuperado.
      * @return Valor recuperado do buffer na posição indicada.
      */
-    private String unpackString(byte[] buffer, int offset) {
-        byte[] strBytes = unpackByteArray(buffer, offset);
+    private String unpackString(int offset) {
+        byte[] strBytes = unpackByteArray(offset);
+
+        if (Metricas.HABILITADA) {
+            Metricas.stringDecodificada(strBytes.length);
+        }
 
         return new String(strBytes, StandardCharsets.UTF_8);
     }
@@ -655,19 +1317,21 @@ public class Seed {
      * Recupera o vetor de bytes disponível no buffer a partir
      * da posição indicada.
      *
-     * @param buffer Buffer que contém o vetor de bytes.
      * @param offset Posição inicial do vetor de bytes no buffer.
      * @return Vetor de bytes.
      * @see #pack(byte[])
      */
-    private byte[] unpackByteArray(byte[] buffer, int offset) {
-        ByteBuffer wrapped = ByteBuffer.wrap(buffer);
-
-        int tamanho = wrapped.getInt(offset);
+    private byte[] unpackByteArray(int offset) {
+        int tamanho = buffer.getInt(offset);
         byte[] strBytes = new byte[tamanho];
 
-        wrapped.position(offset + 4);
-        wrapped.get(strBytes, 0, tamanho);
+        buffer.position(offset + 4);
+        buffer.get(strBytes, 0, tamanho);
+
+        if (Metricas.HABILITADA) {
+            Metricas.alocacao(tamanho);
+        }
+
         return strBytes;
     }
 }
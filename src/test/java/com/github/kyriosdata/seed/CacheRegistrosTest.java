@@ -0,0 +1,193 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheRegistrosTest {
+
+    private static final byte[] META = new byte[] { 0, 4,
+            Seed.LONG, Seed.STRING, Seed.BOOLEAN, Seed.VETOR };
+
+    @Test
+    public void registroDecodificadoPreservaValores() {
+        Seed s = Seed.serializa(META);
+        s.defineLong(0, 42);
+        s.defineString(1, "Goiânia");
+        s.defineBoolean(2, true);
+        s.defineByteArray(3, new byte[] { 1, 2, 3 });
+
+        RegistroDecodificado r = RegistroDecodificado.de(Seed.desserializa(s.array()));
+
+        assertEquals(4, r.quantidade());
+        assertEquals(42L, r.obtemLong(0));
+        assertEquals("Goiânia", r.obtemString(1));
+        assertEquals(Boolean.TRUE, r.valor(2));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, r.obtemByteArray(3));
+        assertTrue(r.peso() > 7 * 2 + 3);
+    }
+
+    @Test
+    public void registroDecodificadoLargoEEsparso() {
+        byte[] tipos = new byte[200];
+        for (int i = 0; i < tipos.length; i++) {
+            tipos[i] = i % 4 == 0 ? Seed.STRING : (i % 4 == 1 ? Seed.CHAR : Seed.INT);
+        }
+
+        Seed largo = Seed.serializaLargo(tipos);
+        Seed esparso = Seed.serializaEsparso(tipos);
+        for (int i = 0; i < tipos.length; i++) {
+            for (Seed s : new Seed[] { largo, esparso }) {
+                if (s == esparso && i % 3 != 0) {
+                    continue;
+                }
+
+                if (tipos[i] == Seed.STRING) {
+                    s.defineString(i, "c" + i);
+                } else if (tipos[i] == Seed.CHAR) {
+                    s.defineChar(i, (char) ('a' + i % 26));
+                } else {
+                    s.defineInt(i, -i);
+                }
+            }
+        }
+
+        RegistroDecodificado l = RegistroDecodificado.de(Seed.desserializa(largo.array()));
+        RegistroDecodificado e = RegistroDecodificado.de(Seed.desserializa(esparso.array()));
+        for (int i = 0; i < tipos.length; i++) {
+            Object esperado = tipos[i] == Seed.STRING ? "c" + i
+                    : tipos[i] == Seed.CHAR ? (Object) (char) ('a' + i % 26) : (Object) (-i);
+            assertEquals(esperado, l.valor(i));
+            assertEquals(i % 3 == 0 ? esperado : null, e.valor(i));
+        }
+
+        // Código do caractere
+        assertEquals('b', l.obtemLong(1));
+        assertThrows(IllegalArgumentException.class, () -> l.obtemLong(0));
+        assertThrows(IllegalStateException.class, () -> e.obtemLong(1));
+    }
+
+    @Test
+    public void obtemLongRejeitaTipoNaoInteiro() {
+        Seed s = Seed.serializa(META);
+        s.defineLong(0, 1);
+        s.defineString(1, "x");
+        s.defineBoolean(2, false);
+        s.defineByteArray(3, new byte[0]);
+
+        RegistroDecodificado r = RegistroDecodificado.de(s);
+        assertEquals(Boolean.FALSE, r.valor(2));
+        assertThrows(IllegalArgumentException.class, () -> r.obtemLong(2));
+    }
+
+    @Test
+    public void acertosFaltasEReusoDaInstancia() {
+        CacheRegistros<String> cache = new CacheRegistros<>(1000, String::length, 1);
+        AtomicInteger cargas = new AtomicInteger();
+
+        String a = cache.obtem(1, k -> { cargas.incrementAndGet(); return "v" + k; });
+        String b = cache.obtem(1, k -> { cargas.incrementAndGet(); return "v" + k; });
+
+        assertSame(a, b);
+        assertEquals(1, cargas.get());
+        assertEquals(1, cache.acertos());
+        assertEquals(1, cache.faltas());
+        assertEquals(0.5, cache.taxaAcerto(), 0.0);
+
+        cache.invalida(1);
+        assertNull(cache.busca(1));
+    }
+
+    @Test
+    public void pesoMaximoRespeitado() {
+        CacheRegistros<byte[]> cache = new CacheRegistros<>(1000, v -> v.length, 1);
+        for (int i = 0; i < 100; i++) {
+            cache.insere(i, new byte[100]);
+        }
+
+        assertEquals(10, cache.quantidade());
+        assertEquals(1000, cache.peso());
+        assertEquals(90, cache.remocoes());
+
+        // Maior que o cache: retornado, mas não mantido
+        cache.obtem(1000, k -> new byte[2000]);
+        assertNull(cache.busca(1000));
+    }
+
+    @Test
+    public void varreduraNaoDescartaRegistrosFrequentes() {
+        CacheRegistros<byte[]> cache = new CacheRegistros<>(1000, v -> v.length, 1);
+
+        // Registros frequentes: promovidos ao segmento protegido
+        for (int i = 0; i < 5; i++) {
+            cache.obtem(i, k -> new byte[100]);
+            cache.obtem(i, k -> new byte[100]);
+        }
+
+        // Varredura: cada registro requisitado uma única vez
+        for (int i = 100; i < 1000; i++) {
+            cache.obtem(i, k -> new byte[100]);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(cache.busca(i));
+        }
+    }
+
+    @Test
+    public void registrosDeArquivoMapeadoComAcessoConcorrente() throws Exception {
+        ByteBuffer dados = ByteBuffer.allocate(1 << 20);
+        List<Integer> posicoes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Seed s = Seed.serializa(META);
+            s.defineLong(0, i);
+            s.defineString(1, "nome" + i);
+            s.defineBoolean(2, i % 2 == 0);
+            s.defineByteArray(3, new byte[i % 10]);
+            posicoes.add(dados.position());
+            dados.put(s.array());
+        }
+
+        CacheRegistros<RegistroDecodificado> cache =
+                new CacheRegistros<>(1 << 20, RegistroDecodificado::peso);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                tarefas.add(executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        int i = (j * 31) % posicoes.size();
+                        RegistroDecodificado r = cache.obtem(posicoes.get(i), p ->
+                                RegistroDecodificado.de(Seed.desserializa(dados, (int) p)));
+                        assertEquals(i, r.obtemLong(0));
+                        assertEquals("nome" + i, r.obtemString(1));
+                    }
+                }));
+            }
+
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(40_000, cache.acertos() + cache.faltas());
+        assertTrue(cache.taxaAcerto() > 0.9);
+    }
+}
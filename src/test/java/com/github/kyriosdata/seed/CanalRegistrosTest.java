@@ -0,0 +1,138 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CanalRegistrosTest {
+
+    private static final byte[] META = new byte[] { 0, 3,
+            Seed.LONG, Seed.STRING, Seed.VETOR };
+
+    private static List<Seed> lote(int quantidade) {
+        List<Seed> registros = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            Seed s = Seed.serializa(META);
+            s.defineLong(0, i);
+            s.defineString(1, "registro " + i);
+            s.defineByteArray(2, new byte[64]);
+            registros.add(s);
+        }
+
+        return registros;
+    }
+
+    @Test
+    public void escreveELeArquivo() throws IOException {
+        Path arquivo = Files.createTempFile("seed-canal", ".dat");
+        try {
+            List<Seed> registros = lote(100);
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+                CanalRegistros.escreve(canal, registros);
+                CanalRegistros.escreve(canal, new ArrayList<>());
+            }
+
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                Seed[] lidos = CanalRegistros.le(canal);
+                assertEquals(100, lidos.length);
+                assertEquals(42L, lidos[42].obtemLong(0));
+                assertEquals("registro 99", lidos[99].obtemString(1));
+
+                assertEquals(0, CanalRegistros.le(canal).length);
+                assertNull(CanalRegistros.le(canal));
+            }
+        } finally {
+            Files.deleteIfExists(arquivo);
+        }
+    }
+
+    @Test
+    public void loopbackBytesPorSegundo() throws Exception {
+        int lotes = 200;
+        List<Seed> registros = lote(1000);
+
+        try (ServerSocketChannel servidor = ServerSocketChannel.open()) {
+            servidor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            CompletableFuture<long[]> recebidos = CompletableFuture.supplyAsync(() -> {
+                long quantidade = 0;
+                long soma = 0;
+                try (SocketChannel canal = servidor.accept()) {
+                    Seed[] lidos;
+                    while ((lidos = CanalRegistros.le(canal)) != null) {
+                        quantidade = quantidade + lidos.length;
+                        soma = soma + lidos[lidos.length - 1].obtemLong(0);
+                    }
+                } catch (IOException exp) {
+                    throw new IllegalStateException(exp);
+                }
+
+                return new long[] { quantidade, soma };
+            });
+
+            long bytes = 0;
+            try (SocketChannel cliente = SocketChannel.open(servidor.getLocalAddress())) {
+                for (int i = 0; i < lotes; i++) {
+                    bytes = bytes + CanalRegistros.escreve(cliente, registros);
+                }
+            }
+
+            long[] resultado = recebidos.get(60, TimeUnit.SECONDS);
+
+            assertEquals(lotes * 1000L, resultado[0]);
+            assertEquals(lotes * 999L, resultado[1]);
+            assertTrue(bytes > 0);
+        }
+    }
+
+    /**
+     * Verifica que o lote cujo início é o conteúdo indicado é
+     * rejeitado por {@link CanalRegistros#le(ScatteringByteChannel)}.
+     */
+    private static void rejeita(ByteBuffer conteudo) throws IOException {
+        Pipe pipe = Pipe.open();
+        conteudo.flip();
+        try (Pipe.SinkChannel escrita = pipe.sink()) {
+            while (conteudo.hasRemaining()) {
+                escrita.write(conteudo);
+            }
+        }
+
+        try (Pipe.SourceChannel leitura = pipe.source()) {
+            assertThrows(IOException.class, () -> CanalRegistros.le(leitura));
+        }
+    }
+
+    @Test
+    public void cabecalhoInvalido() throws IOException {
+        // Quantidade negativa ou excessiva
+        rejeita(ByteBuffer.allocate(4).putInt(-1));
+        rejeita(ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE));
+
+        // Tamanho negativo
+        rejeita(ByteBuffer.allocate(12).putInt(2).putInt(10).putInt(-5));
+
+        // Soma dos tamanhos excede int
+        rejeita(ByteBuffer.allocate(12).putInt(2)
+                .putInt(Integer.MAX_VALUE).putInt(Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,515 @@
+package com.github.kyriosdata.seed;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carga prolongada (<i>soak</i>) de serialização e desserialização
+ * com produtores e consumidores concorrentes e registros de vários
+ * esquemas.
+ *
+ * <p>Metade das <i>threads</i> (pelo menos uma) produz registros,
+ * alternando entre os esquemas selecionados, e os deposita em uma
+ * fila limitada. As demais retiram os registros da fila e os
+ * desserializam, com a leitura de todos os campos (veja
+ * {@link RegistroDecodificado}). Após o aquecimento, são relatados
+ * vazão, latências (p50, p99, p99,9 e máxima) de cada operação,
+ * coletas de lixo e bytes alocados pelas <i>threads</i> da carga.
+ *
+ * <p>Além dos esquemas predefinidos ({@link Esquema}), outro pode
+ * ser indicado pelos tipos dos campos (veja {@link Tipos}).
+ *
+ * <p>Execução: {@code mvn -P carga test-compile exec:java
+ * -Dexec.args="threads=8 duracao=60 aquecimento=10
+ * esquemas=pequeno,texto,largo,esparso tipos=INT,STRING,LONG*20"}.
+ * Durações em segundos.
+ */
+public class Carga {
+
+    /**
+     * Produz os registros de um esquema.
+     */
+    interface Gerador {
+
+        /**
+         * Produz o registro de número indicado.
+         */
+        byte[] produz(long i);
+    }
+
+    /**
+     * Esquemas de registros disponíveis para a carga.
+     */
+    enum Esquema implements Gerador {
+
+        /**
+         * Poucos campos de tipos primitivos.
+         */
+        PEQUENO {
+            private final byte[] meta = new byte[] { 0, 5,
+                    Seed.INT, Seed.LONG, Seed.DOUBLE, Seed.BOOLEAN, Seed.CHAR };
+
+            @Override
+            public byte[] produz(long i) {
+                Seed s = Seed.serializa(meta);
+                s.defineInt(0, (int) i);
+                s.defineLong(1, i * 31);
+                s.defineDouble(2, i / 3.0);
+                s.defineBoolean(3, (i & 1) == 0);
+                s.defineChar(4, (char) ('a' + i % 26));
+                return s.array();
+            }
+        },
+
+        /**
+         * Sequências de caracteres e vetor de bytes.
+         */
+        TEXTO {
+            private final byte[] meta = new byte[] { 0, 4,
+                    Seed.LONG, Seed.STRING, Seed.STRING, Seed.VETOR };
+
+            @Override
+            public byte[] produz(long i) {
+                Seed s = Seed.serializa(meta);
+                s.defineLong(0, i);
+                s.defineString(1, "Goiânia " + i);
+                s.defineString(2, "observação do registro " + (i % 1000));
+                s.defineByteArray(3, new byte[(int) (i % 64)]);
+                return s.array();
+            }
+        },
+
+        /**
+         * Formato largo, com 300 campos.
+         */
+        LARGO {
+            private final byte[] tipos = tipos(300);
+
+            @Override
+            public byte[] produz(long i) {
+                Seed s = Seed.serializaLargo(tipos);
+                for (int c = 0; c < tipos.length; c++) {
+                    if (tipos[c] == Seed.STRING) {
+                        s.defineString(c, "c" + c);
+                    } else {
+                        s.defineLong(c, i + c);
+                    }
+                }
+
+                return s.array();
+            }
+        },
+
+        /**
+         * Formato esparso, com 120 campos dos quais 15 presentes.
+         */
+        ESPARSO {
+            private final byte[] tipos = tipos(120);
+
+            @Override
+            public byte[] produz(long i) {
+                Seed s = Seed.serializaEsparso(tipos);
+                for (int c = (int) (i % 8); c < tipos.length; c += 8) {
+                    if (tipos[c] == Seed.STRING) {
+                        s.defineString(c, "c" + c);
+                    } else {
+                        s.defineLong(c, i + c);
+                    }
+                }
+
+                return s.array();
+            }
+        };
+
+        private static byte[] tipos(int quantidade) {
+            byte[] tipos = new byte[quantidade];
+            for (int c = 0; c < quantidade; c++) {
+                tipos[c] = c % 10 == 0 ? Seed.STRING : Seed.LONG;
+            }
+
+            return tipos;
+        }
+    }
+
+    /**
+     * Esquema definido pelos tipos dos campos, por exemplo,
+     * {@code INT,STRING,LONG}. Um tipo seguido de {@code *n} é
+     * repetido n vezes ({@code LONG*200}). Registros com mais de 127
+     * campos fazem uso do formato largo.
+     */
+    static final class Tipos implements Gerador {
+
+        /**
+         * Nomes dos tipos, na ordem dos valores de {@link Seed#BYTE}
+         * a {@link Seed#VETOR}.
+         */
+        private static final String[] NOMES = { "BYTE", "SHORT", "INT", "LONG",
+                "FLOAT", "DOUBLE", "BOOLEAN", "CHAR", "STRING", "VETOR" };
+
+        private final byte[] tipos;
+        private final String descricao;
+
+        Tipos(String descricao) {
+            List<Byte> lista = new ArrayList<>();
+            for (String item : descricao.split(",")) {
+                String[] partes = item.trim().toUpperCase(Locale.ROOT).split("\\*", 2);
+                byte tipo = (byte) Arrays.asList(NOMES).indexOf(partes[0].trim());
+                if (tipo < 0) {
+                    throw new IllegalArgumentException("tipo desconhecido: " + item);
+                }
+
+                int vezes = partes.length == 2 ? Integer.parseInt(partes[1].trim()) : 1;
+                for (int v = 0; v < vezes; v++) {
+                    lista.add(tipo);
+                }
+            }
+
+            if (lista.isEmpty()) {
+                throw new IllegalArgumentException("nenhum tipo: " + descricao);
+            }
+
+            tipos = new byte[lista.size()];
+            for (int c = 0; c < tipos.length; c++) {
+                tipos[c] = lista.get(c);
+            }
+
+            this.descricao = descricao;
+        }
+
+        @Override
+        public byte[] produz(long i) {
+            Seed s;
+            if (tipos.length > 127) {
+                s = Seed.serializaLargo(tipos);
+            } else {
+                byte[] meta = new byte[2 + tipos.length];
+                meta[1] = (byte) tipos.length;
+                System.arraycopy(tipos, 0, meta, 2, tipos.length);
+                s = Seed.serializa(meta);
+            }
+
+            for (int c = 0; c < tipos.length; c++) {
+                long v = i + c;
+                switch (tipos[c]) {
+                    case Seed.BYTE:
+                        s.defineByte(c, (byte) v);
+                        break;
+                    case Seed.SHORT:
+                        s.defineShort(c, (short) v);
+                        break;
+                    case Seed.INT:
+                        s.defineInt(c, (int) v);
+                        break;
+                    case Seed.LONG:
+                        s.defineLong(c, v);
+                        break;
+                    case Seed.FLOAT:
+                        s.defineFloat(c, v / 3.0f);
+                        break;
+                    case Seed.DOUBLE:
+                        s.defineDouble(c, v / 3.0);
+                        break;
+                    case Seed.BOOLEAN:
+                        s.defineBoolean(c, (v & 1) == 0);
+                        break;
+                    case Seed.CHAR:
+                        s.defineChar(c, (char) ('a' + v % 26));
+                        break;
+                    case Seed.STRING:
+                        s.defineString(c, "campo " + c + " " + (v % 1000));
+                        break;
+                    default:
+                        s.defineByteArray(c, new byte[(int) (v % 64)]);
+                }
+            }
+
+            return s.array();
+        }
+
+        @Override
+        public String toString() {
+            return "TIPOS(" + descricao + ")";
+        }
+    }
+
+    /**
+     * Resultado de uma execução da carga.
+     */
+    static final class Resultado {
+        final Histograma serializacao = new Histograma();
+        final Histograma desserializacao = new Histograma();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong pesoDecodificado = new AtomicLong();
+        final AtomicLong alocadosSerializacao = new AtomicLong();
+        final AtomicLong alocadosDesserializacao = new AtomicLong();
+        volatile boolean alocacaoMedida = true;
+        long coletas;
+        long tempoColetas;
+        long duracao;
+
+        /**
+         * Produz o relatório da execução.
+         */
+        void imprime(PrintStream saida) {
+            double segundos = duracao / 1e9;
+            saida.printf(Locale.ROOT, "duração: %.1f s%n", segundos);
+            imprime(saida, "serialização", serializacao, segundos);
+            imprime(saida, "desserialização", desserializacao, segundos);
+            saida.printf(Locale.ROOT, "vazão: %.1f MB/s%n",
+                    bytes.get() / segundos / (1 << 20));
+            saida.printf(Locale.ROOT, "peso decodificado: %.0f bytes/registro%n",
+                    (double) pesoDecodificado.get() / Math.max(1, desserializacao.quantidade()));
+            saida.printf(Locale.ROOT, "coletas: %d (%d ms)%n", coletas, tempoColetas);
+            if (alocacaoMedida) {
+                long total = alocadosSerializacao.get() + alocadosDesserializacao.get();
+                saida.printf(Locale.ROOT, "alocação: %.1f MB/s%n",
+                        total / segundos / (1 << 20));
+
+                // Cada papel pelas próprias operações
+                imprime(saida, "serialização", alocadosSerializacao.get(), serializacao);
+                imprime(saida, "desserialização", alocadosDesserializacao.get(), desserializacao);
+            }
+        }
+
+        private static void imprime(PrintStream saida, String nome,
+                                    long alocados, Histograma h) {
+            saida.printf(Locale.ROOT, "alocação (%s): %.0f bytes/registro%n",
+                    nome, (double) alocados / Math.max(1, h.quantidade()));
+        }
+
+        private static void imprime(PrintStream saida, String nome,
+                                    Histograma h, double segundos) {
+            saida.printf(Locale.ROOT,
+                    "%s: %d registros (%.0f/s) p50 %d ns, p99 %d ns, p99,9 %d ns, máx %d ns%n",
+                    nome, h.quantidade(), h.quantidade() / segundos,
+                    h.percentil(50), h.percentil(99), h.percentil(99.9), h.maximo());
+        }
+    }
+
+    private final int threads;
+    private final long duracao;
+    private final long aquecimento;
+    private final Gerador[] esquemas;
+
+    /**
+     * Cria carga com a configuração indicada.
+     *
+     * @param threads Total de <i>threads</i> (produtores e consumidores).
+     * @param duracao Duração da medição, em milissegundos.
+     * @param aquecimento Duração do aquecimento, em milissegundos.
+     * @param esquemas Esquemas dos registros, empregados alternadamente.
+     */
+    Carga(int threads, long duracao, long aquecimento, Gerador... esquemas) {
+        if (threads < 2 || esquemas.length == 0) {
+            throw new IllegalArgumentException("exige duas threads e um esquema");
+        }
+
+        this.threads = threads;
+        this.duracao = duracao;
+        this.aquecimento = aquecimento;
+        this.esquemas = esquemas.clone();
+    }
+
+    /**
+     * Executa o aquecimento e, na sequência, a medição.
+     *
+     * @return Resultado da medição.
+     */
+    Resultado executa() throws InterruptedException {
+        if (aquecimento > 0) {
+            fase(aquecimento);
+        }
+
+        long coletas = 0;
+        long tempo = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            coletas = coletas - Math.max(0, gc.getCollectionCount());
+            tempo = tempo - Math.max(0, gc.getCollectionTime());
+        }
+
+        Resultado r = fase(duracao);
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            coletas = coletas + Math.max(0, gc.getCollectionCount());
+            tempo = tempo + Math.max(0, gc.getCollectionTime());
+        }
+
+        r.coletas = coletas;
+        r.tempoColetas = tempo;
+        return r;
+    }
+
+    /**
+     * Executa produtores e consumidores durante o período indicado.
+     */
+    private Resultado fase(long milissegundos) throws InterruptedException {
+        Resultado r = new Resultado();
+        BlockingQueue<byte[]> fila = new ArrayBlockingQueue<>(1024);
+        int produtores = Math.max(1, threads / 2);
+        long inicio = System.nanoTime();
+        long fim = inicio + TimeUnit.MILLISECONDS.toNanos(milissegundos);
+
+        List<Thread> ativas = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int numero = t;
+            boolean produtor = t < produtores;
+            Thread thread = new Thread(() -> {
+                long antes = alocados();
+                Histograma h = new Histograma();
+                try {
+                    if (produtor) {
+                        produz(numero, fila, fim, h, r);
+                    } else {
+                        consome(fila, fim, h, r);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                long depois = alocados();
+                if (antes < 0 || depois < 0) {
+                    r.alocacaoMedida = false;
+                } else {
+                    (produtor ? r.alocadosSerializacao : r.alocadosDesserializacao)
+                            .addAndGet(depois - antes);
+                }
+                synchronized (r) {
+                    (produtor ? r.serializacao : r.desserializacao).adiciona(h);
+                }
+            }, (produtor ? "produtor-" : "consumidor-") + t);
+
+            thread.start();
+            ativas.add(thread);
+        }
+
+        for (Thread thread : ativas) {
+            thread.join();
+        }
+
+        r.duracao = System.nanoTime() - inicio;
+        return r;
+    }
+
+    private void produz(int numero, BlockingQueue<byte[]> fila, long fim,
+                        Histograma h, Resultado r) throws InterruptedException {
+        long bytes = 0;
+        int proximo = numero % esquemas.length;
+        for (long i = numero; System.nanoTime() < fim; i += threads) {
+            Gerador esquema = esquemas[proximo];
+            proximo = proximo + 1 == esquemas.length ? 0 : proximo + 1;
+            long t0 = System.nanoTime();
+            byte[] registro = esquema.produz(i);
+            h.registra(System.nanoTime() - t0);
+            bytes = bytes + registro.length;
+
+            while (!fila.offer(registro, 10, TimeUnit.MILLISECONDS)) {
+                if (System.nanoTime() >= fim) {
+                    break;
+                }
+            }
+        }
+
+        r.bytes.addAndGet(bytes);
+    }
+
+    private static void consome(BlockingQueue<byte[]> fila, long fim,
+                                Histograma h, Resultado r) throws InterruptedException {
+        long peso = 0;
+        while (System.nanoTime() < fim) {
+            byte[] registro = fila.poll(10, TimeUnit.MILLISECONDS);
+            if (registro == null) {
+                continue;
+            }
+
+            long t0 = System.nanoTime();
+            RegistroDecodificado d = RegistroDecodificado.de(Seed.desserializa(registro));
+            h.registra(System.nanoTime() - t0);
+            peso = peso + d.peso();
+        }
+
+        r.pesoDecodificado.addAndGet(peso);
+    }
+
+    /**
+     * Bytes alocados pela <i>thread</i> corrente, ou -1, caso a
+     * JVM não ofereça a informação.
+     */
+    private static long alocados() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Executa a carga. Argumentos no formato {@code chave=valor}:
+     * {@code threads} (padrão: processadores disponíveis, ao menos
+     * 2), {@code duracao} (segundos, padrão 30), {@code aquecimento}
+     * (segundos, padrão 5), {@code esquemas} (separados por
+     * vírgula, padrão: todos, exceto se {@code tipos} é fornecido)
+     * e {@code tipos} (esquema adicional, conforme {@link Tipos}).
+     *
+     * @param args Configuração da carga.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        long duracao = 30;
+        long aquecimento = 5;
+        List<Gerador> esquemas = new ArrayList<>();
+        boolean predefinidos = false;
+
+        for (String arg : args) {
+            String[] par = arg.split("=", 2);
+            if (par.length != 2) {
+                throw new IllegalArgumentException("esperado chave=valor: " + arg);
+            }
+
+            switch (par[0]) {
+                case "threads":
+                    threads = Integer.parseInt(par[1]);
+                    break;
+                case "duracao":
+                    duracao = Long.parseLong(par[1]);
+                    break;
+                case "aquecimento":
+                    aquecimento = Long.parseLong(par[1]);
+                    break;
+                case "esquemas":
+                    predefinidos = true;
+                    for (String nome : par[1].split(",")) {
+                        esquemas.add(Esquema.valueOf(nome.trim().toUpperCase(Locale.ROOT)));
+                    }
+                    break;
+                case "tipos":
+                    esquemas.add(new Tipos(par[1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("opção desconhecida: " + par[0]);
+            }
+        }
+
+        if (!predefinidos && esquemas.isEmpty()) {
+            esquemas.addAll(Arrays.asList(Esquema.values()));
+        }
+
+        System.out.printf(Locale.ROOT, "threads: %d, esquemas: %s%n",
+                threads, esquemas);
+        new Carga(threads, duracao * 1000, aquecimento * 1000,
+                esquemas.toArray(new Gerador[0])).executa().imprime(System.out);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CargaTest {
+
+    @Test
+    public void cargaCurtaProduzResultados() throws Exception {
+        Carga.Resultado r = new Carga(2, 300, 0, Carga.Esquema.values()).executa();
+
+        assertTrue(r.serializacao.quantidade() > 0);
+        assertTrue(r.desserializacao.quantidade() > 0);
+        assertTrue(r.desserializacao.quantidade() <= r.serializacao.quantidade());
+        assertTrue(r.bytes.get() > 0);
+
+        // Alocação contabilizada separadamente para cada papel
+        if (r.alocacaoMedida) {
+            assertTrue(r.alocadosSerializacao.get() > 0);
+            assertTrue(r.alocadosDesserializacao.get() > 0);
+        }
+    }
+
+    @Test
+    public void esquemaDefinidoPelosTipos() {
+        Carga.Tipos tipos = new Carga.Tipos("int, STRING, vetor, long*200");
+        Seed s = Seed.desserializa(tipos.produz(7));
+
+        assertEquals(7, s.obtemInt(0));
+        assertEquals(209L, s.obtemLong(202));
+        assertEquals(9, s.obtemTamanho(2));
+        assertThrows(IllegalArgumentException.class, () -> new Carga.Tipos("INT,TEXTO"));
+    }
+}
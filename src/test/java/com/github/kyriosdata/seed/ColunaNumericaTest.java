@@ -0,0 +1,69 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColunaNumericaTest {
+
+    private static long[] roundTrip(long[] valores) {
+        byte[] codificada = ColunaNumerica.codifica(valores, valores.length);
+        ByteBuffer coluna = ByteBuffer.wrap(codificada);
+
+        assertEquals(codificada.length, ColunaNumerica.tamanho(coluna, 0));
+        assertEquals(valores.length, ColunaNumerica.quantidade(coluna, 0));
+
+        long[] decodificados = new long[valores.length];
+        ColunaNumerica.decodifica(coluna, 0, decodificados);
+        return decodificados;
+    }
+
+    @Test
+    public void instantesConsecutivosOcupamPoucosBits() {
+        long[] instantes = new long[10000];
+        long t = 1_476_000_000_000L;
+        Random random = new Random(1);
+        for (int i = 0; i < instantes.length; i++) {
+            t = t + random.nextInt(16);
+            instantes[i] = t;
+        }
+
+        byte[] codificada = ColunaNumerica.codifica(instantes, instantes.length);
+
+        // 4 bits por valor, contra 64 bits sem codificação
+        assertTrue(codificada.length < instantes.length);
+        assertArrayEquals(instantes, roundTrip(instantes));
+    }
+
+    @Test
+    public void valoresArbitrarios() {
+        Random random = new Random(7);
+        for (int largura = 0; largura <= 64; largura++) {
+            long[] valores = new long[257];
+            for (int i = 0; i < valores.length; i++) {
+                long v = random.nextLong();
+                valores[i] = largura == 64 ? v : v >> (64 - Math.max(1, largura));
+            }
+
+            assertArrayEquals(valores, roundTrip(valores));
+        }
+    }
+
+    @Test
+    public void extremos() {
+        long[] extremos = { Long.MAX_VALUE, Long.MIN_VALUE, 0, -1, Long.MAX_VALUE };
+        assertArrayEquals(extremos, roundTrip(extremos));
+
+        long[] iguais = { 5, 5, 5 };
+        assertEquals(22, ColunaNumerica.codifica(iguais, 3).length);
+        assertArrayEquals(iguais, roundTrip(iguais));
+
+        assertArrayEquals(new long[0], roundTrip(new long[0]));
+        assertArrayEquals(new long[] { 42 }, roundTrip(new long[] { 42 }));
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ComparadorRegistrosTest {
+
+    private static final byte[] META = new byte[] { 0, 3,
+            Seed.STRING, Seed.INT, Seed.LONG };
+
+    private static final byte[] META_TODOS = new byte[] { 0, 10,
+            Seed.BYTE, Seed.SHORT, Seed.CHAR, Seed.INT, Seed.LONG,
+            Seed.FLOAT, Seed.DOUBLE, Seed.BOOLEAN, Seed.STRING, Seed.VETOR };
+
+    private static byte[] registro(String nome, int idade, long id) {
+        Seed s = Seed.serializa(META);
+        s.defineString(0, nome);
+        s.defineInt(1, idade);
+        s.defineLong(2, id);
+        return s.array();
+    }
+
+    @Test
+    public void comparaInteirosComSinal() {
+        ComparadorRegistros c = new ComparadorRegistros(1);
+
+        assertTrue(c.compare(registro("a", -1, 0), registro("a", 1, 0)) < 0);
+        assertTrue(c.compare(registro("a", 7, 0), registro("b", 7, 0)) == 0);
+        assertTrue(c.compare(registro("a", Integer.MAX_VALUE, 0),
+                registro("a", Integer.MIN_VALUE, 0)) > 0);
+    }
+
+    @Test
+    public void comparaStringsComoBytesUtf8() {
+        ComparadorRegistros c = new ComparadorRegistros(0);
+
+        assertTrue(c.compare(registro("abc", 0, 0), registro("abd", 0, 0)) < 0);
+        assertTrue(c.compare(registro("ab", 0, 0), registro("abc", 0, 0)) < 0);
+
+        // 'é' (0xC3 0xA9) sucede 'z' na ordem dos code points
+        assertTrue(c.compare(registro("é", 0, 0), registro("z", 0, 0)) > 0);
+        assertEquals(0, c.compare(registro("açaí", 1, 2), registro("açaí", 3, 4)));
+    }
+
+    @Test
+    public void chaveComposta() {
+        ComparadorRegistros c = new ComparadorRegistros(0, 2);
+
+        assertTrue(c.compare(registro("a", 0, 5L), registro("a", 0, 6L)) < 0);
+        assertTrue(c.compare(registro("b", 0, 1L), registro("a", 0, 6L)) > 0);
+    }
+
+    @Test
+    public void registrosNoMesmoBuffer() {
+        byte[] a = registro("x", 2, 0);
+        byte[] b = registro("x", 1, 0);
+        ByteBuffer dados = ByteBuffer.allocate(a.length + b.length);
+        dados.put(a).put(b);
+
+        ComparadorRegistros c = new ComparadorRegistros(0, 1);
+        assertTrue(c.compara(dados, 0, dados, a.length) > 0);
+    }
+
+    @Test
+    public void campoAusentePrecedeValores() {
+        byte[] tipos = new byte[] { Seed.STRING, Seed.INT };
+        Seed ausente = Seed.serializaEsparso(tipos);
+        ausente.defineString(0, "a");
+        Seed presente = Seed.serializaEsparso(tipos);
+        presente.defineString(0, "a");
+        presente.defineInt(1, Integer.MIN_VALUE);
+
+        ComparadorRegistros c = new ComparadorRegistros(1, 0);
+        assertTrue(c.compare(ausente.array(), presente.array()) < 0);
+        assertTrue(c.compare(presente.array(), ausente.array()) > 0);
+        assertEquals(0, c.compare(ausente.array(), ausente.array()));
+    }
+
+    private static final byte[] TIPOS = new byte[] { Seed.BYTE, Seed.SHORT,
+            Seed.CHAR, Seed.INT, Seed.LONG, Seed.FLOAT, Seed.DOUBLE,
+            Seed.BOOLEAN, Seed.STRING, Seed.VETOR };
+
+    private static byte[] todos(Seed s, int v) {
+        s.defineByte(0, (byte) v);
+        s.defineShort(1, (short) (v * 300));
+        s.defineChar(2, (char) (40000 + v));
+        s.defineInt(3, v * 70000);
+        s.defineLong(4, v * 5000000000L);
+        s.defineFloat(5, v * 0.5f);
+        s.defineDouble(6, v * 0.25);
+        s.defineBoolean(7, v > 0);
+        s.defineString(8, "v" + v);
+        s.defineByteArray(9, new byte[] { (byte) (v * 100) });
+        return s.array();
+    }
+
+    @Test
+    public void vetoresEBuffersProduzemMesmaOrdem() {
+        for (int ordem = 0; ordem < TIPOS.length; ordem++) {
+            ComparadorRegistros c = new ComparadorRegistros(ordem);
+            for (int v = -2; v <= 2; v++) {
+                for (int w = -2; w <= 2; w++) {
+                    byte[][] a = {
+                            todos(Seed.serializa(META_TODOS), v),
+                            todos(Seed.serializaLargo(TIPOS), v),
+                            todos(Seed.serializaEsparso(TIPOS), v) };
+                    byte[][] b = {
+                            todos(Seed.serializa(META_TODOS), w),
+                            todos(Seed.serializaLargo(TIPOS), w),
+                            todos(Seed.serializaEsparso(TIPOS), w) };
+
+                    for (int f = 0; f < a.length; f++) {
+                        int esperado = c.compara(ByteBuffer.wrap(a[f]), 0,
+                                ByteBuffer.wrap(b[f]), 0);
+                        assertEquals(Integer.signum(esperado),
+                                Integer.signum(c.compare(a[f], b[f])));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.kyriosdata.seed;
+
+/**
+ * Histograma de valores inteiros não negativos (por exemplo,
+ * latências em nanossegundos) com ampla faixa dinâmica e erro
+ * relativo limitado, no estilo de HdrHistogram.
+ *
+ * <p>Os valores são distribuídos em faixas de potências de dois,
+ * cada uma dividida em {@link #SUBFAIXAS} / 2 partes iguais, ou
+ * seja, o erro relativo de qualquer percentil é inferior a
+ * 1 / 64. A memória ocupada é fixa (cerca de 30 KB), independente
+ * da quantidade de valores registrados.
+ *
+ * <p>Instâncias não são seguras para uso concorrente. Cada
+ * <i>thread</i> registra em sua própria instância, e as instâncias
+ * são combinadas ao final por {@link #adiciona(Histograma)}.
+ */
+public class Histograma {
+
+    /**
+     * Bits de precisão de cada faixa.
+     */
+    private static final int BITS = 7;
+
+    /**
+     * Quantidade de valores representados exatamente.
+     */
+    private static final int SUBFAIXAS = 1 << BITS;
+
+    private static final int METADE = SUBFAIXAS >> 1;
+
+    private final long[] contadores = new long[indice(Long.MAX_VALUE) + 1];
+    private long quantidade;
+    private long soma;
+    private long maximo;
+
+    /**
+     * Registra o valor.
+     *
+     * @param valor Valor não negativo.
+     */
+    public void registra(long valor) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("valor negativo: " + valor);
+        }
+
+        contadores[indice(valor)]++;
+        quantidade++;
+        soma = soma + valor;
+        maximo = Math.max(maximo, valor);
+    }
+
+    /**
+     * Acrescenta os valores registrados em outro histograma.
+     *
+     * @param outro Histograma cujos valores são acrescentados.
+     */
+    public void adiciona(Histograma outro) {
+        for (int i = 0; i < contadores.length; i++) {
+            contadores[i] = contadores[i] + outro.contadores[i];
+        }
+
+        quantidade = quantidade + outro.quantidade;
+        soma = soma + outro.soma;
+        maximo = Math.max(maximo, outro.maximo);
+    }
+
+    /**
+     * Recupera o valor abaixo do qual (ou igual) está o percentual
+     * indicado dos valores registrados.
+     *
+     * @param percentual Percentual, entre 0 e 100, por exemplo, 99.9.
+     * @return Maior valor equivalente ao percentil ou zero, se
+     * nenhum valor foi registrado.
+     */
+    public long percentil(double percentual) {
+        if (quantidade == 0) {
+            return 0;
+        }
+
+        long alvo = Math.max(1, (long) Math.ceil(percentual / 100 * quantidade));
+        long acumulado = 0;
+        for (int i = 0; i < contadores.length; i++) {
+            acumulado = acumulado + contadores[i];
+            if (acumulado >= alvo) {
+                return Math.min(maximo, maiorEquivalente(i));
+            }
+        }
+
+        return maximo;
+    }
+
+    /**
+     * Quantidade de valores registrados.
+     *
+     * @return Total de valores registrados.
+     */
+    public long quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Maior valor registrado.
+     *
+     * @return O maior valor registrado ou zero.
+     */
+    public long maximo() {
+        return maximo;
+    }
+
+    /**
+     * Média dos valores registrados.
+     *
+     * @return Média ou zero, se nenhum valor foi registrado.
+     */
+    public double media() {
+        return quantidade == 0 ? 0 : (double) soma / quantidade;
+    }
+
+    /**
+     * Índice do contador do valor: o próprio valor, se inferior a
+     * {@link #SUBFAIXAS}, ou a faixa (deslocamento) e os
+     * {@link #BITS} bits mais significativos do valor.
+     */
+    private static int indice(long valor) {
+        int bits = 64 - Long.numberOfLeadingZeros(valor);
+        if (bits <= BITS) {
+            return (int) valor;
+        }
+
+        int deslocamento = bits - BITS;
+        return deslocamento * METADE + (int) (valor >>> deslocamento);
+    }
+
+    /**
+     * Maior valor associado ao índice.
+     */
+    private static long maiorEquivalente(int indice) {
+        if (indice < SUBFAIXAS) {
+            return indice;
+        }
+
+        int deslocamento = indice / METADE - 1;
+        long superiores = indice - (long) deslocamento * METADE;
+        return ((superiores + 1) << deslocamento) - 1;
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistogramaTest {
+
+    private static void assertProximo(long esperado, long obtido) {
+        assertTrue(Math.abs(obtido - esperado) <= esperado / 64 + 1,
+                () -> "esperado " + esperado + ", obtido " + obtido);
+    }
+
+    @Test
+    public void percentisComErroRelativoLimitado() {
+        Histograma h = new Histograma();
+        for (long v = 1; v <= 1_000_000; v++) {
+            h.registra(v);
+        }
+
+        assertEquals(1_000_000, h.quantidade());
+        assertProximo(500_000, h.percentil(50));
+        assertProximo(990_000, h.percentil(99));
+        assertProximo(999_000, h.percentil(99.9));
+        assertEquals(1_000_000, h.percentil(100));
+        assertEquals(500_000.5, h.media(), 0.0);
+    }
+
+    @Test
+    public void valoresPequenosExatosEGrandesRepresentados() {
+        Histograma h = new Histograma();
+        h.registra(0);
+        h.registra(100);
+        h.registra(Long.MAX_VALUE);
+
+        assertEquals(0, h.percentil(1));
+        assertEquals(100, h.percentil(50));
+        assertEquals(Long.MAX_VALUE, h.percentil(100));
+    }
+
+    @Test
+    public void combinacaoDeHistogramas() {
+        Histograma a = new Histograma();
+        Histograma b = new Histograma();
+        for (int i = 0; i < 99; i++) {
+            a.registra(1_000);
+        }
+
+        b.registra(5_000_000);
+        a.adiciona(b);
+
+        assertEquals(100, a.quantidade());
+        assertProximo(1_000, a.percentil(99));
+        assertEquals(5_000_000, a.percentil(99.9));
+        assertEquals(5_000_000, a.maximo());
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+public class IndiceHashTest {
+
+    private static final byte[] META = new byte[] { 0, 3,
+            Seed.STRING, Seed.LONG, Seed.INT };
+
+    private static ByteBuffer sequencia(int total) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        for (int i = 0; i < total; i++) {
+            Seed s = Seed.serializa(META);
+            s.defineString(0, "nome-" + i);
+            s.defineLong(1, i * 1000L);
+            s.defineInt(2, i);
+            byte[] registro = s.array();
+            os.write(registro, 0, registro.length);
+        }
+
+        return ByteBuffer.wrap(os.toByteArray());
+    }
+
+    @Test
+    public void buscaPorChaveNumerica() {
+        ByteBuffer dados = sequencia(10000);
+        IndiceHash indice = IndiceHash.cria(dados, 1);
+
+        assertEquals(10000, indice.quantidade());
+
+        int posicao = indice.busca(4321000L);
+        Seed r = Seed.desserializa(dados, posicao);
+        assertEquals("nome-4321", r.obtemString(0));
+        assertEquals(4321, r.obtemInt(2));
+
+        assertEquals(-1, indice.busca(17L));
+    }
+
+    @Test
+    public void buscaPorString() {
+        ByteBuffer dados = sequencia(5000);
+        IndiceHash indice = IndiceHash.cria(dados, 0);
+
+        int posicao = indice.busca("nome-4999");
+        assertEquals(4999, Seed.desserializa(dados, posicao).obtemInt(2));
+
+        assertEquals(0, indice.busca("nome-0"));
+        assertEquals(-1, indice.busca("inexistente"));
+    }
+
+    @Test
+    public void indicePersistidoEmArquivo() throws IOException {
+        ByteBuffer dados = sequencia(1000);
+        Path arquivo = Files.createTempFile("seed-indice", ".idx");
+        try {
+            IndiceHash.cria(dados, 2, arquivo);
+
+            IndiceHash indice = IndiceHash.abre(arquivo, dados);
+            assertEquals(1000, indice.quantidade());
+            int posicao = indice.busca(777);
+            assertEquals("nome-777", Seed.desserializa(dados, posicao).obtemString(0));
+        } finally {
+            Files.deleteIfExists(arquivo);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LeitorLotesTest {
+
+    private static final byte[] META = new byte[] { 0, 3,
+            Seed.LONG, Seed.INT, Seed.STRING };
+
+    /**
+     * Dez blocos de mil eventos, com instantes crescentes.
+     */
+    private static Path arquivo() throws Exception {
+        Path arquivo = Files.createTempFile("seed-lotes", ".dat");
+        try (EscritorLotes escritor = new EscritorLotes(arquivo, 0)) {
+            for (int b = 0; b < 10; b++) {
+                Lote lote = new Lote();
+                lote.colunar(0);
+                for (int i = 0; i < 1000; i++) {
+                    Seed s = Seed.serializa(META);
+                    s.defineLong(0, b * 1000L + i);
+                    s.defineInt(1, i % 7);
+                    s.defineString(2, "evento");
+                    lote.adiciona(s.array());
+                }
+
+                escritor.adiciona(lote);
+            }
+
+            escritor.sincroniza();
+        }
+
+        return arquivo;
+    }
+
+    @Test
+    public void varreduraLeApenasBlocosRelevantes() throws Exception {
+        Path arquivo = arquivo();
+        try (LeitorLotes leitor = new LeitorLotes(arquivo)) {
+            assertEquals(10, leitor.blocos());
+            assertEquals(3000L, leitor.estatistica(3, 0).minimo());
+            assertEquals(3999L, leitor.estatistica(3, 0).maximo());
+            assertNull(leitor.estatistica(3, 1));
+
+            List<Long> instantes = new ArrayList<>();
+            long encontrados = leitor.varre(0, 3500, 3600,
+                    r -> instantes.add(r.obtemLong(0)));
+
+            assertEquals(101, encontrados);
+            assertEquals(3500L, (long) instantes.get(0));
+            assertEquals(3600L, (long) instantes.get(100));
+            assertEquals(1, leitor.blocosLidos());
+
+            // Intervalo fora de todos os blocos: nenhuma leitura
+            assertEquals(0, leitor.varre(0, 20_000, 30_000, r -> { }));
+            assertEquals(1, leitor.blocosLidos());
+
+            // Campo sem estatística: todos os blocos são lidos
+            assertEquals(10 * 143, leitor.varre(1, 0, 0, r -> { }));
+            assertEquals(11, leitor.blocosLidos());
+        } finally {
+            Files.delete(arquivo);
+        }
+    }
+
+    @Test
+    public void blocoIncompletoIgnoradoERemovidoPeloEscritor() throws Exception {
+        Path arquivo = arquivo();
+        long tamanho = Files.size(arquivo);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.truncate(tamanho - 10);
+        }
+
+        try (LeitorLotes leitor = new LeitorLotes(arquivo)) {
+            assertEquals(9, leitor.blocos());
+            assertEquals(tamanho / 10 - 10, leitor.descartados());
+            assertEquals(9000, leitor.varre(0, 0, Long.MAX_VALUE, r -> { }));
+        }
+
+        // Escrita interrompida no cabeçalho do bloco
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.truncate(tamanho / 10 * 9 + 5);
+        }
+
+        try (LeitorLotes leitor = new LeitorLotes(arquivo)) {
+            assertEquals(9, leitor.blocos());
+            assertEquals(5, leitor.descartados());
+        }
+
+        try (EscritorLotes escritor = new EscritorLotes(arquivo, 0)) {
+            Lote lote = new Lote();
+            Seed s = Seed.serializa(META);
+            s.defineLong(0, 99_999);
+            s.defineInt(1, 0);
+            s.defineString(2, "depois");
+            lote.adiciona(s.array());
+            escritor.adiciona(lote);
+        }
+
+        try (LeitorLotes leitor = new LeitorLotes(arquivo)) {
+            assertEquals(10, leitor.blocos());
+            assertEquals(0, leitor.descartados());
+            List<String> depois = new ArrayList<>();
+            leitor.varre(0, 99_999, 99_999, r -> depois.add(r.obtemString(2)));
+            assertEquals(1, depois.size());
+            assertEquals("depois", depois.get(0));
+        } finally {
+            Files.delete(arquivo);
+        }
+    }
+}
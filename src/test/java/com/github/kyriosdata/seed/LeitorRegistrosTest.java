@@ -0,0 +1,87 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LeitorRegistrosTest {
+
+    private static byte[] compacto(long chave, String nome) {
+        Seed s = Seed.serializa(new byte[] { 0, 3, Seed.LONG, Seed.STRING, Seed.VETOR });
+        s.defineLong(0, chave);
+        s.defineString(1, nome);
+        s.defineByteArray(2, new byte[] { (byte) chave });
+        return s.array();
+    }
+
+    private static LeitorRegistros leitor(byte[]... registros) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        for (byte[] registro : registros) {
+            saida.write(registro);
+        }
+
+        return new LeitorRegistros(new ByteArrayInputStream(saida.toByteArray()));
+    }
+
+    @Test
+    public void recuperaRegistrosConcatenados() throws IOException {
+        byte[] a = compacto(1, "um");
+        byte[] b = compacto(2, "dois");
+
+        try (LeitorRegistros leitor = leitor(a, b)) {
+            assertArrayEquals(a, leitor.proximo());
+            assertArrayEquals(b, leitor.proximo());
+            assertNull(leitor.proximo());
+        }
+    }
+
+    @Test
+    public void recuperaRegistroLargo() throws IOException {
+        Seed s = Seed.serializaLargo(new byte[] { Seed.STRING, Seed.INT });
+        s.defineString(0, "largo");
+        s.defineInt(1, 3);
+        byte[] largo = s.array();
+        byte[] compacto = compacto(1, "um");
+
+        try (LeitorRegistros leitor = leitor(largo, compacto)) {
+            assertArrayEquals(largo, leitor.proximo());
+            assertArrayEquals(compacto, leitor.proximo());
+            assertNull(leitor.proximo());
+        }
+    }
+
+    @Test
+    public void recuperaRegistroEsparso() throws IOException {
+        Seed s = Seed.serializaEsparso(new byte[] { Seed.STRING, Seed.INT, Seed.VETOR });
+        s.defineString(0, "um");
+        s.defineByteArray(2, new byte[] { 9 });
+
+        Seed c = Seed.serializa(new byte[] { 0, 1, Seed.INT });
+        c.defineInt(0, 3);
+
+        try (LeitorRegistros leitor = leitor(s.array(), c.array())) {
+            assertArrayEquals(s.array(), leitor.proximo());
+            assertArrayEquals(c.array(), leitor.proximo());
+            assertNull(leitor.proximo());
+        }
+    }
+
+    @Test
+    public void registroIncompleto() throws IOException {
+        byte[] a = compacto(1, "um");
+        byte[] b = compacto(2, "dois");
+
+        try (LeitorRegistros leitor = leitor(a, Arrays.copyOf(b, b.length - 1))) {
+            assertArrayEquals(a, leitor.proximo());
+            assertThrows(EOFException.class, leitor::proximo);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.expectThrows;
+
+public class LogRegistrosTest {
+
+    private static final byte[] META = new byte[] { 0, 2, Seed.INT, Seed.STRING };
+
+    private Path dir;
+
+    @BeforeEach
+    public void criaDiretorio() throws IOException {
+        dir = Files.createTempDirectory("seed-log");
+    }
+
+    @AfterEach
+    public void removeDiretorio() throws IOException {
+        try (Stream<Path> arquivos = Files.walk(dir)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static byte[] registro(int produtor, int sequencia) {
+        Seed s = Seed.serializa(META);
+        s.defineInt(0, produtor * 100000 + sequencia);
+        s.defineString(1, "p" + produtor);
+        return s.array();
+    }
+
+    /**
+     * Chaves dos registros do log, na ordem em que foram escritos.
+     */
+    private List<Integer> chaves() throws IOException {
+        List<Integer> chaves = new ArrayList<>();
+        for (Path segmento : LogRegistros.segmentos(dir)) {
+            try (LeitorRegistros leitor = new LeitorRegistros(
+                    new BufferedInputStream(Files.newInputStream(segmento)))) {
+                byte[] registro;
+                while ((registro = leitor.proximo()) != null) {
+                    chaves.add(Seed.desserializa(registro).obtemInt(0));
+                }
+            }
+        }
+
+        return chaves;
+    }
+
+    @Test
+    public void produtoresConcorrentesComVariosSegmentos() throws Exception {
+        int produtores = 8;
+        int porProdutor = 500;
+
+        List<CompletableFuture<Long>> confirmacoes = new ArrayList<>();
+        Map<CompletableFuture<Long>, Integer> chaves = new HashMap<>();
+
+        long persistencias;
+        try (LogRegistros log = new LogRegistros(dir, 4096, 64)) {
+            ExecutorService executor = Executors.newFixedThreadPool(produtores);
+            List<CompletableFuture<List<CompletableFuture<Long>>>> tarefas = new ArrayList<>();
+            for (int p = 0; p < produtores; p++) {
+                final int produtor = p;
+                tarefas.add(CompletableFuture.supplyAsync(() -> {
+                    List<CompletableFuture<Long>> minhas = new ArrayList<>();
+                    for (int i = 0; i < porProdutor; i++) {
+                        minhas.add(log.anexa(registro(produtor, i)));
+                    }
+                    return minhas;
+                }, executor));
+            }
+
+            for (int p = 0; p < produtores; p++) {
+                List<CompletableFuture<Long>> minhas = tarefas.get(p).get();
+                for (int i = 0; i < porProdutor; i++) {
+                    confirmacoes.add(minhas.get(i));
+                    chaves.put(minhas.get(i), p * 100000 + i);
+                }
+            }
+
+            CompletableFuture.allOf(confirmacoes.toArray(new CompletableFuture<?>[0]))
+                    .get(30, TimeUnit.SECONDS);
+            executor.shutdown();
+            persistencias = log.persistencias();
+        }
+
+        // Registros persistidos em grupos
+        assertTrue(persistencias < produtores * porProdutor);
+
+        List<Path> segmentos = LogRegistros.segmentos(dir);
+        assertTrue(segmentos.size() > 1);
+
+        // Posição confirmada de cada registro -> chave
+        Map<Long, Integer> lidos = new HashMap<>();
+        long posicao = 0;
+        for (Path segmento : segmentos) {
+            try (LeitorRegistros leitor = new LeitorRegistros(
+                    new BufferedInputStream(Files.newInputStream(segmento)))) {
+                byte[] registro;
+                while ((registro = leitor.proximo()) != null) {
+                    lidos.put(posicao, Seed.desserializa(registro).obtemInt(0));
+                    posicao = posicao + registro.length;
+                }
+            }
+        }
+
+        assertEquals(produtores * porProdutor, lidos.size());
+        for (CompletableFuture<Long> confirmacao : confirmacoes) {
+            assertEquals(chaves.get(confirmacao), lidos.get(confirmacao.get()));
+        }
+    }
+
+    @Test
+    public void reabreEAcrescenta() throws Exception {
+        long primeira;
+        try (LogRegistros log = new LogRegistros(dir, 1 << 20)) {
+            primeira = log.anexa(registro(1, 1)).get();
+        }
+
+        LogRegistros log = new LogRegistros(dir, 1 << 20);
+        long segunda = log.anexa(registro(1, 2)).get();
+        log.close();
+        assertThrows(IllegalStateException.class, () -> log.anexa(registro(1, 3)));
+
+        assertEquals(0, primeira);
+        assertEquals(registro(1, 1).length, segunda);
+    }
+
+    @Test
+    public void registroIncompletoDescartadoNaAbertura() throws Exception {
+        try (LogRegistros log = new LogRegistros(dir, 1 << 20)) {
+            for (int i = 0; i < 3; i++) {
+                log.anexa(registro(1, i)).get();
+            }
+        }
+
+        // Escrita interrompida no meio do quarto registro
+        Path segmento = LogRegistros.segmentos(dir).get(0);
+        Files.write(segmento, Arrays.copyOf(registro(1, 3), 7),
+                StandardOpenOption.APPEND);
+
+        try (LogRegistros log = new LogRegistros(dir, 1 << 20)) {
+            assertEquals(3L * registro(1, 0).length, (long) log.anexa(registro(1, 4)).get());
+        }
+
+        assertEquals(Arrays.asList(100000, 100001, 100002, 100004), chaves());
+    }
+
+    @Test
+    public void falhaAoCriarSegmentoNaoComprometeLog() throws Exception {
+        int tamanho = registro(1, 0).length;
+        try (LogRegistros log = new LogRegistros(dir, 3 * tamanho)) {
+            for (int i = 0; i < 3; i++) {
+                log.anexa(registro(1, i)).get();
+            }
+
+            // Impede a criação do segundo segmento
+            Path bloqueio = dir.resolve(String.format("%020d%s",
+                    3 * tamanho, LogRegistros.EXTENSAO));
+            Files.createDirectory(bloqueio);
+
+            ExecutionException exp = expectThrows(ExecutionException.class,
+                    () -> log.anexa(registro(1, 3)).get());
+            assertTrue(exp.getCause() instanceof IOException);
+
+            Files.delete(bloqueio);
+            assertEquals(3L * tamanho, (long) log.anexa(registro(1, 4)).get());
+        }
+
+        assertEquals(Arrays.asList(100000, 100001, 100002, 100004), chaves());
+    }
+}
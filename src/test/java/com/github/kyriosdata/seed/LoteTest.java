@@ -0,0 +1,148 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoteTest {
+
+    private static final byte[] META = new byte[] { 0, 3,
+            Seed.LONG, Seed.INT, Seed.STRING };
+
+    private static final String[] CIDADES = { "Goiânia", "Anápolis", "Catalão" };
+
+    private static Lote lote(int total) {
+        Lote lote = new Lote();
+        for (int i = 0; i < total; i++) {
+            Seed s = Seed.serializa(META);
+            s.defineLong(0, i);
+            s.defineString(1, CIDADES[i % CIDADES.length], lote.dicionario());
+            s.defineString(2, "obs" + i);
+            lote.adiciona(s.array());
+        }
+
+        return lote;
+    }
+
+    @Test
+    public void dicionarioArmazenaCadaValorUmaVez() {
+        Lote lote = lote(1000);
+
+        assertEquals(1000, lote.quantidade());
+        assertEquals(CIDADES.length, lote.dicionario().quantidade());
+        assertEquals("Anápolis", lote.registro(1).obtemString(1, lote.dicionario()));
+        assertEquals("obs999", lote.registro(999).obtemString(2));
+    }
+
+    @Test
+    public void leituraRetornaInstanciaCanonica() {
+        Lote lote = Lote.desserializa(lote(10).array());
+        Dicionario d = lote.dicionario();
+
+        String a = lote.registro(0).obtemString(1, d);
+        String b = lote.registro(3).obtemString(1, d);
+        assertSame(a, b);
+    }
+
+    @Test
+    public void filtroPorCodigo() {
+        Lote lote = Lote.desserializa(lote(300).array());
+
+        int codigo = lote.dicionario().busca("Catalão");
+        assertTrue(codigo >= 0);
+        assertEquals(-1, lote.dicionario().busca("Brasília"));
+
+        int encontrados = 0;
+        for (int i = 0; i < lote.quantidade(); i++) {
+            if (lote.registro(i).obtemInt(1) == codigo) {
+                encontrados++;
+            }
+        }
+
+        assertEquals(100, encontrados);
+    }
+
+    @Test
+    public void serializacaoPreservaRegistros() {
+        Lote original = lote(50);
+        Lote copia = Lote.desserializa(original.array());
+
+        assertEquals(original.quantidade(), copia.quantidade());
+        for (int i = 0; i < copia.quantidade(); i++) {
+            assertEquals(i, copia.registro(i).obtemLong(0));
+            assertEquals(original.inicio(i), copia.inicio(i));
+        }
+    }
+
+    @Test
+    public void colunasReduzemSerializacao() {
+        Lote lote = lote(1000);
+        int semColunas = lote.array().length;
+
+        lote.colunar(0);
+        byte[] bytes = lote.array();
+
+        // 8 bytes por registro substituídos por 10 bits
+        assertTrue(bytes.length < semColunas - 6 * 1000);
+
+        Lote copia = Lote.desserializa(bytes);
+        assertEquals(1000, copia.quantidade());
+        for (int i = 0; i < copia.quantidade(); i++) {
+            Seed r = copia.registro(i);
+            assertEquals(i, r.obtemLong(0));
+            assertEquals("obs" + i, r.obtemString(2));
+            assertEquals(CIDADES[i % CIDADES.length], r.obtemString(1, copia.dicionario()));
+            assertEquals(lote.inicio(i), copia.inicio(i));
+        }
+
+        assertEquals(999L, copia.coluna(0)[999]);
+    }
+
+    @Test
+    public void colunasEmRegistrosLargos() {
+        Lote lote = new Lote();
+        for (int i = 0; i < 100; i++) {
+            Seed s = Seed.serializaLargo(new byte[] { Seed.STRING, Seed.INT, Seed.SHORT });
+            s.defineString(0, "x" + i);
+            s.defineInt(1, 1000 + i);
+            s.defineShort(2, (short) -i);
+            lote.adiciona(s.array());
+        }
+
+        lote.colunar(2);
+        lote.colunar(1);
+
+        Lote copia = Lote.desserializa(lote.array());
+        for (int i = 0; i < 100; i++) {
+            Seed r = copia.registro(i);
+            assertEquals("x" + i, r.obtemString(0));
+            assertEquals(1000 + i, r.obtemInt(1));
+            assertEquals(-i, r.obtemShort(2));
+        }
+    }
+
+    @Test
+    public void estatisticaDeCampoInteiroComAusentes() {
+        byte[] tipos = new byte[] { Seed.LONG, Seed.STRING };
+        Lote lote = new Lote();
+        for (int i = 0; i < 10; i++) {
+            Seed s = Seed.serializaEsparso(tipos);
+            if (i % 3 != 0) {
+                s.defineLong(0, 100 - i);
+            }
+
+            s.defineString(1, "r" + i);
+            lote.adiciona(s.array());
+        }
+
+        Estatistica e = lote.estatistica(0);
+        assertEquals(92L, e.minimo());
+        assertEquals(99L, e.maximo());
+        assertEquals(4, e.ausentes());
+        assertTrue(e.podeConter(0, 92));
+        assertFalse(e.podeConter(100, 200));
+    }
+}
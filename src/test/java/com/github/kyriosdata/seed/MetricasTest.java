@@ -0,0 +1,115 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Os contadores são compartilhados por todo o processo, ou seja,
+ * também alterados por outros testes. Apenas as diferenças são
+ * verificadas.
+ */
+public class MetricasTest {
+
+    private static final byte[] META = new byte[] { 0, 2, Seed.INT, Seed.STRING };
+
+    /**
+     * Valores correntes de todos os contadores.
+     */
+    private static long[] contadores() {
+        Metricas m = Metricas.instancia();
+        return new long[] {
+                m.getRegistrosSerializados(),
+                m.getBytesSerializados(),
+                m.getRegistrosDesserializados(),
+                m.getStringsDecodificadas(),
+                m.getBytesDecodificados(),
+                m.getPassosOffset(),
+                m.getAlocacoes(),
+                m.getBytesAlocados(),
+                m.getCrescimentos()
+        };
+    }
+
+    private static long[] diferencas(long[] antes) {
+        long[] depois = contadores();
+        for (int i = 0; i < depois.length; i++) {
+            depois[i] = depois[i] - antes[i];
+        }
+
+        return depois;
+    }
+
+    /**
+     * Serializa e desserializa registro cuja sequência de
+     * caracteres possui três bytes.
+     */
+    private static byte[] serializaEDesserializa() {
+        Seed s = Seed.serializa(META);
+        s.defineInt(0, 7);
+        s.defineString(1, "abc");
+        byte[] dados = s.array();
+
+        Seed r = Seed.desserializa(dados);
+        assertEquals("abc", r.obtemString(1));
+        return dados;
+    }
+
+    @Test
+    public void contadoresAcompanhamSerializacao() {
+        assumeTrue(Metricas.HABILITADA);
+
+        long[] antes = contadores();
+        byte[] dados = serializaEDesserializa();
+        long[] d = diferencas(antes);
+
+        assertEquals(1, d[0]);
+        assertEquals(dados.length, d[1]);
+        assertEquals(1, d[2]);
+        assertEquals(1, d[3]);
+        assertEquals(3, d[4]);
+        assertTrue(d[5] > 0);
+        assertTrue(d[6] >= 3);
+    }
+
+    @Test
+    public void contadoresExpostosViaJmx() throws Exception {
+        assumeTrue(Metricas.HABILITADA);
+
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        ObjectName nome = new ObjectName(Metricas.NOME_JMX);
+        assertTrue(servidor.isRegistered(nome));
+
+        long antes = (Long) servidor.getAttribute(nome, "RegistrosSerializados");
+        Seed.serializa(new byte[] { 0, 1, Seed.BYTE }).array();
+        assertEquals(antes + 1, servidor.getAttribute(nome, "RegistrosSerializados"));
+    }
+
+    @Test
+    public void desabilitadaNaoContabilizaNemRegistraJmx() throws Exception {
+        assumeFalse(Metricas.HABILITADA);
+
+        long[] antes = contadores();
+        serializaEDesserializa();
+        Montador m = Montador.serializa(META);
+        m.defineString(1, "abc");
+        m.defineInt(0, 7);
+        m.array();
+
+        assertEquals(0, Metricas.instancia().getRegistrosSerializados());
+        for (long diferenca : diferencas(antes)) {
+            assertEquals(0, diferenca);
+        }
+
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        assertFalse(servidor.isRegistered(new ObjectName(Metricas.NOME_JMX)));
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MontadorTest {
+
+    private static final byte[] META = new byte[] { 0, 6,
+            Seed.STRING, Seed.INT, Seed.VETOR, Seed.DOUBLE, Seed.CHAR, Seed.BOOLEAN };
+
+    private static final String TEXTO = "Goiânia € 😀 fim";
+
+    @Test
+    public void foraDeOrdemIgualAoRegistroEmOrdem() {
+        Seed s = Seed.serializa(META);
+        s.defineString(0, TEXTO);
+        s.defineInt(1, -7);
+        s.defineByteArray(2, new byte[] { 1, 2, 3 });
+        s.defineDouble(3, 2.5);
+        s.defineChar(4, 'x');
+        s.defineBoolean(5, true);
+
+        Montador m = Montador.serializa(META);
+        m.defineBoolean(5, true);
+        m.defineDouble(3, 2.5);
+        m.defineByteArray(2, new byte[] { 1, 2, 3 });
+        m.defineChar(4, 'x');
+        m.defineInt(1, -7);
+        m.defineString(0, TEXTO);
+
+        assertArrayEquals(s.array(), m.array());
+        assertEquals(TEXTO, Seed.desserializa(m.array()).obtemString(0));
+    }
+
+    @Test
+    public void formatoLargoIgualAoRegistroEmOrdem() {
+        byte[] tipos = new byte[300];
+        for (int i = 0; i < tipos.length; i++) {
+            tipos[i] = i % 3 == 0 ? Seed.STRING : Seed.LONG;
+        }
+
+        Seed s = Seed.serializaLargo(tipos);
+        Montador m = Montador.serializaLargo(tipos);
+        for (int i = 0; i < tipos.length; i++) {
+            if (tipos[i] == Seed.STRING) {
+                s.defineString(i, "c" + i);
+            } else {
+                s.defineLong(i, i);
+            }
+        }
+
+        for (int i = tipos.length - 1; i >= 0; i--) {
+            if (tipos[i] == Seed.STRING) {
+                m.defineString(i, "c" + i);
+            } else {
+                m.defineLong(i, i);
+            }
+        }
+
+        byte[] montado = m.array();
+        assertArrayEquals(s.array(), montado);
+        assertEquals("c297", Seed.desserializa(montado).obtemString(297));
+    }
+
+    @Test
+    public void escreveEmBufferFornecidoEReutiliza() {
+        byte[] meta = new byte[] { 0, 2, Seed.LONG, Seed.STRING };
+        Montador m = Montador.serializa(meta);
+
+        // Ordem do buffer fornecido não afeta o registro
+        ByteBuffer destino = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        destino.position(10);
+        for (int i = 0; i < 3; i++) {
+            m.reinicia();
+            m.defineString(1, "valor" + i);
+            m.defineLong(0, i);
+            m.escreve(destino);
+        }
+
+        int inicio = 10;
+        for (int i = 0; i < 3; i++) {
+            Seed s = Seed.desserializa(destino.array(), inicio);
+            assertEquals(i, s.obtemLong(0));
+            assertEquals("valor" + i, s.obtemString(1));
+            inicio = inicio + s.tamanhoRegistro();
+        }
+
+        assertEquals(inicio, destino.position());
+        assertThrows(BufferOverflowException.class,
+                () -> m.escreve(ByteBuffer.allocate(4)));
+    }
+
+    @Test
+    public void campoNaoDefinidoOuTipoIncompativel() {
+        Montador m = Montador.serializa(META);
+        m.defineInt(1, 1);
+        assertThrows(IllegalStateException.class, m::array);
+        assertThrows(IllegalArgumentException.class, () -> m.defineString(1, "x"));
+        assertThrows(IllegalArgumentException.class, () -> m.defineInt(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> m.defineLong(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> m.defineDouble(2, 1));
+        assertThrows(IllegalArgumentException.class, () -> m.defineByteArray(0, new byte[1]));
+        assertThrows(IllegalArgumentException.class, () -> m.defineBoolean(4, true));
+    }
+
+    @Test
+    public void utf8IgualAoDaPlataforma() {
+        String isolado = "a\uD800b";
+        Montador m = Montador.serializa(new byte[] { 0, 1, Seed.STRING });
+        m.defineString(0, isolado);
+
+        byte[] registro = m.array();
+        byte[] esperado = isolado.getBytes(StandardCharsets.UTF_8);
+        assertEquals(esperado.length, Seed.desserializa(registro).obtemTamanho(0));
+        assertEquals(new String(esperado, StandardCharsets.UTF_8),
+                Seed.desserializa(registro).obtemString(0));
+    }
+
+    @Test
+    public void formatoEsparsoIgualAoRegistroEmOrdem() {
+        byte[] tipos = new byte[100];
+        Arrays.fill(tipos, Seed.INT);
+        tipos[80] = Seed.STRING;
+
+        Seed s = Seed.serializaEsparso(tipos);
+        s.defineInt(3, 3);
+        s.defineString(80, "oitenta");
+        s.defineInt(99, 99);
+
+        Montador m = Montador.serializaEsparso(tipos);
+        m.defineInt(99, 99);
+        m.defineString(80, "oitenta");
+        m.defineInt(3, 3);
+
+        byte[] montado = m.array();
+        assertArrayEquals(s.array(), montado);
+        assertEquals("oitenta", Seed.desserializa(montado).obtemString(80));
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrdenacaoExternaTest {
+
+    private static final byte[] META = new byte[] { 0, 3,
+            Seed.LONG, Seed.STRING, Seed.VETOR };
+
+    private Path dir;
+
+    @BeforeEach
+    public void criaDiretorio() throws IOException {
+        dir = Files.createTempDirectory("seed-ordenacao");
+    }
+
+    @AfterEach
+    public void removeDiretorio() throws IOException {
+        try (Stream<Path> arquivos = Files.walk(dir)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static byte[] registro(long chave, String nome) {
+        Seed s = Seed.serializa(META);
+        s.defineLong(0, chave);
+        s.defineString(1, nome);
+        s.defineByteArray(2, new byte[] { (byte) chave });
+        return s.array();
+    }
+
+    @Test
+    public void ordenaArquivoMaiorQueMemoria() throws IOException {
+        Path entrada = dir.resolve("entrada.dat");
+        Path saida = dir.resolve("saida.dat");
+
+        Random random = new Random(42);
+        int total = 5000;
+        try (OutputStream os = Files.newOutputStream(entrada)) {
+            for (int i = 0; i < total; i++) {
+                long chave = random.nextInt(1000);
+                os.write(registro(chave, "r" + i));
+            }
+        }
+
+        OrdenacaoExterna ordenacao = new OrdenacaoExterna(
+                new ComparadorRegistros(0), 4 * 1024, dir);
+
+        // Força mais de uma rodada de intercalação
+        ordenacao.setMaximoIntercalados(4);
+        ordenacao.ordena(entrada, saida);
+
+        List<byte[]> ordenados = new ArrayList<>();
+        try (LeitorRegistros leitor = new LeitorRegistros(Files.newInputStream(saida))) {
+            byte[] registro;
+            while ((registro = leitor.proximo()) != null) {
+                ordenados.add(registro);
+            }
+        }
+
+        assertEquals(total, ordenados.size());
+        for (int i = 1; i < total; i++) {
+            long anterior = Seed.desserializa(ordenados.get(i - 1)).obtemLong(0);
+            long corrente = Seed.desserializa(ordenados.get(i)).obtemLong(0);
+            assertTrue(anterior <= corrente);
+        }
+
+        // Apenas entrada e saída permanecem no diretório
+        try (Stream<Path> arquivos = Files.list(dir)) {
+            assertEquals(2, arquivos.count());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.kyriosdata.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProjecaoTest {
+
+    private static final byte[] META = new byte[] { 0, 5,
+            Seed.INT, Seed.STRING, Seed.LONG, Seed.VETOR, Seed.BOOLEAN };
+
+    private static byte[] origem() {
+        Seed s = Seed.serializa(META);
+        s.defineInt(0, 7);
+        s.defineString(1, "Goiânia");
+        s.defineLong(2, 42);
+        s.defineByteArray(3, new byte[] { 1, 2 });
+        s.defineBoolean(4, true);
+        return s.array();
+    }
+
+    @Test
+    public void subconjuntoReordenadoSemDecodificacao() {
+        Seed esperado = Seed.serializa(new byte[] { 0, 3,
+                Seed.VETOR, Seed.STRING, Seed.INT });
+        esperado.defineByteArray(0, new byte[] { 1, 2 });
+        esperado.defineString(1, "Goiânia");
+        esperado.defineInt(2, 7);
+
+        byte[] registro = origem();
+        long decodificadas = Metricas.instancia().getStringsDecodificadas();
+        byte[] projetado = new Projecao(3, 1, 0).projeta(registro);
+
+        assertEquals(decodificadas, Metricas.instancia().getStringsDecodificadas());
+        assertArrayEquals(esperado.array(), projetado);
+    }
+
+    @Test
+    public void origemLargaOuEsparsa() {
+        byte[] tipos = new byte[200];
+        Arrays.fill(tipos, Seed.STRING);
+
+        Seed largo = Seed.serializaLargo(tipos);
+        Seed esparso = Seed.serializaEsparso(tipos);
+        for (int i = 0; i < tipos.length; i++) {
+            largo.defineString(i, "c" + i);
+            if (i % 2 == 0) {
+                esparso.defineString(i, "c" + i);
+            }
+        }
+
+        Projecao p = new Projecao(150, 10);
+        Seed r = Seed.desserializa(p.projeta(largo));
+        assertEquals("c150", r.obtemString(0));
+        assertEquals("c10", r.obtemString(1));
+
+        // Campo ausente na origem: registro produzido é esparso
+        Seed e = Seed.desserializa(new Projecao(150, 11).projeta(esparso));
+        assertEquals("c150", e.obtemString(0));
+        assertFalse(e.presente(1));
+
+        Seed esperado = Seed.serializaEsparso(new byte[] { Seed.STRING, Seed.STRING });
+        esperado.defineString(0, "c150");
+        assertArrayEquals(esperado.array(), new Projecao(150, 11).projeta(esparso));
+    }
+
+    @Test
+    public void maisDe127CamposProduzFormatoLargo() {
+        int[] ordens = new int[300];
+        for (int i = 0; i < ordens.length; i++) {
+            ordens[i] = i % 5;
+        }
+
+        byte[] projetado = new Projecao(ordens).projeta(origem());
+        Seed r = Seed.desserializa(projetado);
+
+        assertEquals(Seed.LARGO, projetado[1]);
+        assertEquals("Goiânia", r.obtemString(296));
+        assertEquals(42L, r.obtemLong(297));
+        assertEquals(projetado.length, r.tamanhoRegistro());
+    }
+
+    @Test
+    public void depositaEmBufferFornecido() {
+        byte[] registro = origem();
+        Projecao p = new Projecao(2, 1);
+
+        ByteBuffer destino = ByteBuffer.allocate(256);
+        int primeiro = p.projeta(ByteBuffer.wrap(registro), 0, destino);
+        p.projeta(ByteBuffer.wrap(registro), 0, destino);
+
+        Seed r = Seed.desserializa(destino.array(), primeiro);
+        assertEquals(42L, r.obtemLong(0));
+        assertEquals("Goiânia", r.obtemString(1));
+        assertEquals(2 * primeiro, destino.position());
+
+        assertThrows(IllegalArgumentException.class, () -> new Projecao(5).projeta(registro));
+    }
+}
@@ -3,11 +3,14 @@ package com.github.kyriosdata.seed;
 import org.junit.jupiter.api.Test;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SeedTest {
@@ -304,5 +307,123 @@ public class SeedTest {
         assertEquals(d8, r.obtemInt(8));
         assertEquals(d9, r.obtemLong(9));
     }
-}
 
+    @Test
+    public void registroLargoComMilharesDeCampos() {
+        int total = 2500;
+        byte[] tipos = new byte[total];
+        for (int i = 0; i < total; i++) {
+            tipos[i] = i % 3 == 0 ? Seed.STRING : (i % 3 == 1 ? Seed.INT : Seed.LONG);
+        }
+
+        Seed s = Seed.serializaLargo(tipos);
+        for (int i = 0; i < total; i++) {
+            switch (tipos[i]) {
+                case Seed.STRING: s.defineString(i, "c" + i); break;
+                case Seed.INT: s.defineInt(i, i); break;
+                default: s.defineLong(i, -i);
+            }
+        }
+
+        byte[] dados = s.array();
+        assertEquals(dados.length, s.tamanhoRegistro());
+
+        Seed r = Seed.desserializa(dados);
+        assertEquals("c2499", r.obtemString(2499));
+        assertEquals(1, r.obtemInt(1));
+        assertEquals(-1250L, r.obtemLong(1250));
+        assertEquals("c0", r.obtemString(0));
+        assertEquals(dados.length, r.tamanhoRegistro());
+    }
+
+    @Test
+    public void registroLargoAninhado() {
+        Seed s = Seed.serializaLargo(new byte[] { Seed.VETOR, Seed.DOUBLE });
+        s.defineByteArray(0, new byte[] { 1, 2, 3 });
+        s.defineDouble(1, 2.5d);
+        byte[] largo = s.array();
+
+        Seed outer = Seed.serializa(new byte[] { 0, 2, Seed.INT, Seed.VETOR });
+        outer.defineInt(0, 9);
+        outer.defineByteArray(1, largo);
+
+        Seed r = Seed.desserializa(outer.array());
+
+        // Meta (4 bytes), int e tamanho do vetor
+        r.setOffsetInicio(4 + 4 + 4);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, r.obtemByteArray(0));
+        assertEquals(2.5d, r.obtemDouble(1), 0.0001d);
+    }
+
+    @Test
+    public void registroCompactoMaiorQueBufferInicial() {
+        byte[] meta = new byte[] { 0, 2, Seed.STRING, Seed.LONG };
+        char[] letras = new char[1000];
+        Arrays.fill(letras, 'a');
+        String longa = new String(letras);
+
+        Seed s = Seed.serializa(meta);
+        s.defineString(0, longa);
+        s.defineLong(1, 42L);
+
+        Seed r = Seed.desserializa(s.array());
+        assertEquals(longa, r.obtemString(0));
+        assertEquals(42L, r.obtemLong(1));
+    }
+
+    @Test
+    public void registroEsparsoArmazenaApenasCamposPresentes() {
+        byte[] tipos = new byte[120];
+        Arrays.fill(tipos, Seed.LONG);
+        tipos[70] = Seed.STRING;
+
+        Seed s = Seed.serializaEsparso(tipos);
+        for (int i = 0; i < 120; i += 8) {
+            s.defineLong(i, i);
+        }
+
+        s.defineString(70, "setenta");
+        s.defineLong(119, -1);
+
+        byte[] bytes = s.array();
+
+        // Cabeçalho (6 + 120 tipos + 2 palavras) e apenas 17 campos
+        assertEquals(6 + 120 + 16 + 16 * 8 + 4 + 7, bytes.length);
+
+        Seed r = Seed.desserializa(bytes);
+        assertTrue(r.presente(64));
+        assertFalse(r.presente(65));
+        assertEquals(64L, r.obtemLong(64));
+        assertEquals("setenta", r.obtemString(70));
+        assertEquals(-1L, r.obtemLong(119));
+        assertEquals(bytes.length, r.tamanhoRegistro());
+        assertThrows(IllegalStateException.class, () -> r.obtemLong(1));
+    }
+
+    @Test
+    public void registroDesserializadoEscreveNoVetorFornecido() {
+        Seed s = Seed.serializa(new byte[] { 0, 2, Seed.INT, Seed.STRING });
+        s.defineInt(0, 1);
+        s.defineString(1, "ab");
+        byte[] bytes = s.array();
+
+        Seed r = Seed.desserializa(bytes);
+        r.defineInt(0, 7);
+        assertEquals(7, Seed.desserializa(bytes).obtemInt(0));
+
+        // O vetor fornecido não é substituído por outro maior
+        byte[] antes = bytes.clone();
+        assertThrows(BufferOverflowException.class, () -> r.defineString(1, "abc"));
+        assertArrayEquals(antes, bytes);
+
+        Seed e = Seed.serializaEsparso(new byte[] { Seed.LONG, Seed.LONG });
+        e.defineLong(0, 1L);
+        byte[] esparso = e.array();
+        byte[] original = esparso.clone();
+
+        Seed d = Seed.desserializa(esparso);
+        assertThrows(BufferOverflowException.class, () -> d.defineLong(1, 2L));
+        assertArrayEquals(original, esparso);
+        assertFalse(Seed.desserializa(esparso).presente(1));
+    }
+}